@@ -21,16 +21,19 @@
 package net.nexttext;
 
 import java.awt.BasicStroke;
-import java.awt.Color;
 import java.awt.Font;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.nexttext.behaviour.*;
 import net.nexttext.input.*;
@@ -58,6 +61,8 @@ public class Book {
     public static KeyboardDefault keyboard;
     
     public static boolean bRemoveEmptyGroups = true;
+    /** Log the removal of empty groups. */
+    public static boolean bDebugRemoveEmptyGroups = false;
     
     private PApplet p;
     private PGraphics g;
@@ -76,9 +81,13 @@ public class Book {
     protected LinkedHashMap<String, TextPage> pages;
     protected TextPageRenderer defaultRenderer;
     protected List<AbstractBehaviour> behaviourList;
+    protected BehaviourScheduler scheduler = new BehaviourScheduler();
+    protected SimulationClock clock = new SimulationClock();
+    protected RandomSource random = new RandomSource();
     protected TextObjectRoot textRoot;	// the root of the TextObject hierarchy
     protected InputManager inputs;
     protected SpatialList spatialList;
+    protected PickService picker = new PickService(this);
     
     /**
      * Instantiates the Book with a default renderer.
@@ -202,6 +211,14 @@ public class Book {
     	init();
     }
     
+    /**
+     * Instantiates a Book without an applet, which can be stepped but not
+     * drawn.  It has no renderer and no inputs, and is used by the tests.
+     */
+    Book() {
+        init();
+    }
+
     private void init() {
     	pages = new LinkedHashMap<String, TextPage>();
     	behaviourList = new LinkedList<AbstractBehaviour>();
@@ -216,9 +233,11 @@ public class Book {
         toBuilder = new TextObjectBuilder(this, defaultTextPage);
         
         // initialize the inputs
-        mouse = new MouseDefault(p);
-        keyboard = new KeyboardDefault(p);
-        inputs = new InputManager(mouse, keyboard);
+        if (p != null) {
+            mouse = new MouseDefault(p);
+            keyboard = new KeyboardDefault(p);
+            inputs = new InputManager(mouse, keyboard);
+        }
     }
     
 	///////////////////////////////////////////////////////////////////////////
@@ -247,87 +266,153 @@ public class Book {
 	/**
 	 * Removes all objects that have been marked for deletion.  
 	 * 
+	 * <p>The whole queue is handled at once: each behaviour and the spatial
+	 * list are updated a single time, and only the behaviours which act on
+	 * the removed objects are visited.  Objects queued while this runs are
+	 * removed the next time.  </p>
+	 *
 	 * <p>Do not call this method while iterating over the TextObjectRoot 
 	 * for synchronization reasons. </p> 
 	 */
 	public synchronized void removeQueuedObjects() {
 	    
-	    if ( objectsToRemove.size() > 0 ) {
-	        
-	        for ( Iterator<TextObject> i = objectsToRemove.iterator(); i.hasNext(); ) {
-                TextObject next = i.next();
-                if (next instanceof TextObjectGlyph) {
-                    removeObjectInner((TextObjectGlyph) next);
-                } else if (next instanceof TextObjectGroup) {
-                    TextObjectGlyphIterator toi = ((TextObjectGroup) next).glyphIterator();
-                    while (toi.hasNext()) {
-                        removeObjectInner(toi.next());
-                    }
-                } else {
-                    throw new RuntimeException("Unexpected TextObject subtype");
-                }
+	    if ( objectsToRemove.isEmpty() ) return;
+
+	    Set<TextObject> queued = objectsToRemove;
+	    objectsToRemove = new HashSet<TextObject>();
+
+	    // gather the removed objects with all of their descendants, sorted
+	    // by the behaviours that act on them
+	    Set<TextObjectGlyph> glyphs = new HashSet<TextObjectGlyph>();
+	    Map<AbstractBehaviour, List<TextObject>> byBehaviour =
+	        new LinkedHashMap<AbstractBehaviour, List<TextObject>>();
+	    for ( Iterator<TextObject> i = queued.iterator(); i.hasNext(); ) {
+	        TextObject next = i.next();
+	        if (next instanceof TextObjectGlyph) {
+	            gatherRemoved(next, glyphs, byBehaviour);
+	        } else if (next instanceof TextObjectGroup) {
+	            TextObjectIterator toi = ((TextObjectGroup) next).iterator();
+	            while (toi.hasNext()) {
+	                gatherRemoved(toi.next(), glyphs, byBehaviour);
+	            }
+	        } else {
+	            throw new RuntimeException("Unexpected TextObject subtype");
 	        }
+	    }
 
-	        objectsToRemove.clear();
+	    // remove them from the behaviours
+	    for ( Iterator<Map.Entry<AbstractBehaviour, List<TextObject>>> i =
+	              byBehaviour.entrySet().iterator(); i.hasNext(); ) {
+	        Map.Entry<AbstractBehaviour, List<TextObject>> e = i.next();
+	        e.getKey().removeObjects(e.getValue());
+	    }
+
+	    // remove the glyphs from the spatial list
+	    spatialList.removeAll(glyphs);
+
+	    // detach the objects from the tree, descendants go with them
+	    for ( Iterator<TextObject> i = queued.iterator(); i.hasNext(); ) {
+	        TextObject next = i.next();
+	        if (hasQueuedAncestor(next, queued)) continue;
+	        if (next.getParent() != null) {
+	            next.detach();
+	        } else {
+	            // a root can't be detached, so empty it instead
+	            TextObjectGroup root = (TextObjectGroup) next;
+	            while (root.getLeftMostChild() != null) {
+	                root.getLeftMostChild().detach();
+	            }
+	        }
+	    }
+	}
+
+	// Note a removed object, and the behaviours it has to be removed from.
+	private void gatherRemoved(TextObject to, Set<TextObjectGlyph> glyphs,
+	                           Map<AbstractBehaviour, List<TextObject>> byBehaviour) {
+	    if (to instanceof TextObjectGlyph) {
+	        glyphs.add((TextObjectGlyph) to);
+	    }
+	    AbstractBehaviour[] bs = to.getBehaviours();
+	    for (int j = 0; j < bs.length; j++) {
+	        List<TextObject> tos = byBehaviour.get(bs[j]);
+	        if (tos == null) {
+	            tos = new ArrayList<TextObject>();
+	            byBehaviour.put(bs[j], tos);
+	        }
+	        tos.add(to);
 	    }
 	}
 
+	private static boolean hasQueuedAncestor(TextObject to, Set<TextObject> queued) {
+	    for (TextObject p = to.getParent(); p != null; p = p.getParent()) {
+	        if (queued.contains(p)) return true;
+	    }
+	    return false;
+	}
+	
+	// Groups which lost their last child, see groupEmptied().
+	private Set<TextObjectGroup> emptiedGroups = new LinkedHashSet<TextObjectGroup>();
+
 	/**
-	 * See removeObject(TextObject to)
+	 * Called when the last child of a group attached to this book is
+	 * detached, so that the group can be removed at the end of the step.
 	 */
-	private synchronized void removeObjectInner(TextObjectGlyph to) {
-		// remove the object from the spatial list
-		getSpatialList().remove( to );
-		// traverse the behaviour list.  try to remove the object from each
-		// active behaviour
-    	Iterator<AbstractBehaviour> i = behaviourList.iterator();
-    	while (i.hasNext()) {
-    	    AbstractBehaviour b = i.next();
-    	    b.removeObject(to);    	        	    					
-    	}
-		// detach the object from the tree
-		to.detach();
+	synchronized void groupEmptied(TextObjectGroup tog) {
+		if (bRemoveEmptyGroups) emptiedGroups.add(tog);
 	}
-	
+
+	/**
+	 * Removes the groups which have lost all their children.  Removing a
+	 * group can empty its parent in turn, which is then removed as well.
+	 */
 	private synchronized void removeEmptyGroups() {
-		System.out.println("----- removeEmptyGroups -----");
-		// traverse through all the groups
-		TextObject to = textRoot.getLeftMostChild();
-		while (to != null) {
-			if (to instanceof TextObjectGroup) {
-				TextObjectGroup tog = (TextObjectGroup)to;
-				System.out.println("  Processing TOG '" + tog + "'");
-				if (tog.isEmpty()) {
-					// remove it!
-					System.out.println("  Detaching empty TOG '" + tog + "'");
-					tog.detach();
-					to = textRoot.getLeftMostChild();
-				} else {
-					System.out.println("  Keeping TOG '" + tog + "' with " + tog.getNumChildren() + " children");
-					to = to.getRightSibling();
+		while (!emptiedGroups.isEmpty()) {
+			for (Iterator<TextObjectGroup> i = emptiedGroups.iterator(); i.hasNext(); ) {
+				TextObjectGroup tog = i.next();
+				// it may have been refilled or removed since it was emptied,
+				// and roots are never removed
+				if (tog.getNumChildren() == 0 && tog.getParent() != null) {
+					if (bDebugRemoveEmptyGroups)
+						log("Removing empty group '" + tog + "'");
+					objectsToRemove.add(tog);
 				}
-			} else {
-				System.out.println("  Skipping TO '" + to + "'");
-				to = to.getRightSibling();
 			}
+			emptiedGroups.clear();
+			removeQueuedObjects();
 		}
-		System.out.println("----------------------------");
 	}
 	
 	///////////////////////////////////////////////////////////////////////////
 	// Step and draw methods 
 	
 	/**
-     * Applies all active behaviours.
-     * <p>This code is adapted from Simulator.run().</p>
+     * Advances the simulation.
+     *
+     * <p>Takes as many simulation steps as the clock says, one unless it has
+     * been given a fixed timestep, see {@link SimulationClock}.  </p>
      */
     public synchronized void step() {
-        // apply the behaviours
-        Iterator<AbstractBehaviour> i = behaviourList.iterator();
-        while (i.hasNext()) {
-            AbstractBehaviour b = i.next();
-            b.behaveAll(); 
+        int steps = clock.advance();
+        for (int i = 0; i < steps; i++) {
+            // drawing goes between the last two steps
+            if (i == steps - 1 && clock.isInterpolating()) {
+                keepTransforms();
+            }
+            simulate();
+            clock.stepped();
         }
+    }
+
+	/**
+     * Applies all active behaviours, once.
+     * <p>This code is adapted from Simulator.run().</p>
+     */
+    protected void simulate() {
+        // apply the behaviours, holding back property change events until
+        // each one is done, so that every changed property notifies its
+        // listeners once per behaviour instead of once per change.  Those
+        // which don't touch the same properties may run at the same time.
+        scheduler.run(behaviourList);
 
         // remove all objects flagged for deletion 
         removeQueuedObjects();
@@ -342,6 +427,15 @@ public class Book {
         spatialList.update();
     }
     
+    // Remember every object's transform, for drawing between steps.
+    private void keepTransforms() {
+        long step = clock.getSteps();
+        TextObjectIterator i = textRoot.iterator();
+        while (i.hasNext()) {
+            i.next().keepTransform(step);
+        }
+    }
+
     /**
      * Renders a frame.
      */
@@ -531,13 +625,13 @@ public class Book {
 	    	strokeProp.set(new BasicStroke(g.strokeWeight, cap, join));
     		
 	    	// set the stroke color property
-	    	colProp.setOriginal(new Color(g.strokeColor, true));
-	    	colProp.set(new Color(g.strokeColor, true));
+	    	colProp.setOriginalARGB(g.strokeColor);
+	    	colProp.setARGB(g.strokeColor);
             
     	} else {
     		// set the stroke color property to transparent
-    		colProp.setOriginal(new Color(0, 0, 0, 0));
-	    	colProp.set(new Color(0, 0, 0, 0));
+    		colProp.setOriginalARGB(0);
+	    	colProp.setARGB(0);
         }
     }
     
@@ -551,12 +645,12 @@ public class Book {
     	
     	if (g.fill) {
             // set the fill color property
-    		colProp.setOriginal(new Color(g.fillColor, true));
-    		colProp.set(new Color(g.fillColor, true));
+    		colProp.setOriginalARGB(g.fillColor);
+    		colProp.setARGB(g.fillColor);
         } else {
         	// set the fill color property to transparent
-        	colProp.setOriginal(new Color(0, 0, 0, 0));
-        	colProp.set(new Color(0, 0, 0, 0));
+        	colProp.setOriginalARGB(0);
+        	colProp.setARGB(0);
         }
     }
     
@@ -728,6 +822,34 @@ public class Book {
 	public InputManager getInputs() { return inputs; }
 	/** Returns the Spatial List */
 	public SpatialList getSpatialList() { return spatialList; }
+	/** Get the service which finds the objects under a point, such as the mouse. */
+	public PickService getPicker() { return picker; }
+
+	/** The clock which decides how the simulation steps. */
+	public SimulationClock getClock() { return clock; }
+
+	/** The random numbers for this book's behaviours, see {@link RandomSource#setSeed}. */
+	public RandomSource getRandom() { return random; }
+
+    // The owners of state kept on objects for everything with the same key,
+    // such as the outcomes of equal conditions.
+    private final ConcurrentHashMap<Object, Integer> sharedStateIds =
+        new ConcurrentHashMap<Object, Integer>();
+
+    /**
+     * Get the owner id of the {@link ActionState} kept on this book's
+     * objects for everything with the given key.  Keys with the same id are
+     * equal, and are kept for as long as the book.
+     */
+    public int getSharedStateId(Object key) {
+        Integer id = sharedStateIds.get(key);
+        if (id == null) {
+            Integer mine = Integer.valueOf(AbstractAction.newId());
+            id = sharedStateIds.putIfAbsent(key, mine);
+            if (id == null) id = mine;
+        }
+        return id.intValue();
+    }
 	
     /**
      * Add a page to the book without specifying a name.
@@ -105,7 +105,13 @@ final public class FastMath {
     /** A value to multiply a radian value by, to convert it to degrees. */
     public static final float RAD_TO_DEG = 180.0f / PI;
 
-    /** A precreated random object for random numbers. */
+    /**
+     * A precreated random object for random numbers.
+     *
+     * @deprecated Its seed changes from run to run, and it is shared by all
+     * threads.  Use the Book's {@link RandomSource} instead.
+     */
+    @Deprecated
     public static final Random rand = new Random(System.currentTimeMillis());
 
 
@@ -712,4 +718,4 @@ final public class FastMath {
     public static float clamp(float input, float min, float max) {
         return (input < min) ? min : (input > max) ? max : input;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext;
+
+import java.awt.Rectangle;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Finds the TextObjects of a Book which are under a point, such as the
+ * mouse.
+ *
+ * <p>The objects under a point are found once per step, by walking down the
+ * Book's tree from the root, and only going into the groups whose bounding
+ * box holds the point.  A group's bounding box encloses its children's, so
+ * the tree acts as a spatial index, and the bounding polygons of objects
+ * which haven't moved are already cached.  After that, asking about any
+ * object takes constant time, which is what the mouse conditions do for
+ * every object they process.  </p>
+ *
+ * <p>An object is under the point when its bounding polygon contains it, as
+ * it would be for {@link TextObject#getBoundingPolygon()}.  The results are
+ * hierarchical: the word and line holding a glyph under the mouse are
+ * themselves under the mouse, and so is a group when the point falls in a
+ * gap between its glyphs.  </p>
+ *
+ * <p>Objects move while behaviours are applied, and an object which is
+ * asked about later in a step is judged by where things were when the point
+ * was first picked in that step.  </p>
+ */
+/* $Id$ */
+public class PickService {
+
+    // Polygons are in whole pixels, and transforming a group's box can round
+    // its edges a pixel inside its children's, so groups are searched if the
+    // point is within this distance of their box.
+    private static final int SLACK = 2;
+
+    private final Book book;
+
+    // The last pick, replaced whole so readers on other threads always see
+    // a consistent one.
+    private volatile Pick last = null;
+
+    private static final class Pick {
+        final long step;
+        final int x, y;
+        final Set<TextObject> under;
+
+        Pick(long step, int x, int y, Set<TextObject> under) {
+            this.step = step;
+            this.x = x;
+            this.y = y;
+            this.under = under;
+        }
+    }
+
+    public PickService(Book book) {
+        this.book = book;
+    }
+
+    /**
+     * Whether the object is under the given point, for the current step.
+     */
+    public boolean isUnder(TextObject to, int x, int y) {
+        return pick(x, y).contains(to);
+    }
+
+    /**
+     * Get all the objects under the given point, for the current step,
+     * including the groups which hold them.
+     */
+    public Set<TextObject> pick(int x, int y) {
+        long step = book.getClock().getSteps();
+        Pick p = last;
+        if (p == null || p.step != step || p.x != x || p.y != y) {
+            p = repick(step, x, y);
+        }
+        return p.under;
+    }
+
+    /**
+     * Whether the object is under the given point, using the pick service
+     * of its Book, or testing its bounding polygon directly if it isn't in
+     * one.
+     */
+    public static boolean isUnderPoint(TextObject to, int x, int y) {
+        Book book = to.getBook();
+        if (book == null) {
+            return to.getBoundingPolygon().contains(x, y);
+        }
+        return book.getPicker().isUnder(to, x, y);
+    }
+
+    private synchronized Pick repick(long step, int x, int y) {
+        // Another thread may have made the same pick while this one waited.
+        Pick p = last;
+        if (p != null && p.step == step && p.x == x && p.y == y) {
+            return p;
+        }
+        Set<TextObject> under = new HashSet<TextObject>();
+        collect(book.getTextRoot(), x, y, under);
+        p = new Pick(step, x, y, Collections.unmodifiableSet(under));
+        last = p;
+        return p;
+    }
+
+    private void collect(TextObject to, int x, int y, Set<TextObject> under) {
+        if (to.getBoundingPolygon().contains(x, y)) {
+            under.add(to);
+        }
+        if (!(to instanceof TextObjectGroup)) return;
+
+        Rectangle box = to.getBounds();
+        if (x < box.x - SLACK || x > box.x + box.width + SLACK ||
+            y < box.y - SLACK || y > box.y + box.height + SLACK) {
+            return;
+        }
+        TextObject child = ((TextObjectGroup) to).getLeftMostChild();
+        while (child != null) {
+            collect(child, x, y, under);
+            child = child.getRightSibling();
+        }
+    }
+}
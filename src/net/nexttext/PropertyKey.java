@@ -0,0 +1,124 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.nexttext.property.Property;
+
+/**
+ * An interned property name, used for fast property lookups.
+ *
+ * <p>Every property name is given a small integer id the first time it is
+ * used, and a {@link PropertySet} stores its properties in an array indexed by
+ * those ids.  Looking up a property with a PropertyKey is then a bounds check
+ * and an array load, instead of hashing the name.  Keys are meant to be
+ * created once and kept in static fields, for example: </p>
+ *
+ * <pre>
+ * static final PropertyKey&lt;NumberProperty&gt; SPEED =
+ *     PropertyKey.get("Speed", NumberProperty.class);
+ * </pre>
+ *
+ * <p>The type parameter only saves casts at the call site.  The same name may
+ * hold properties of different types in different PropertySets, so several
+ * keys of different types can share a name, and therefore an id.  </p>
+ */
+/* $Id$ */
+public final class PropertyKey<T extends Property> {
+
+    // Ids of all the names interned so far, and the names by id.
+    private static Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+    private static ArrayList<String> names = new ArrayList<String>();
+
+    private final String name;
+    private final int id;
+
+    private PropertyKey(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    /**
+     * Get a key for the named property, of the given type.
+     */
+    public static <T extends Property> PropertyKey<T> get(String name, Class<T> type) {
+        return new PropertyKey<T>(name, intern(name));
+    }
+
+    /**
+     * Get an untyped key for the named property.
+     */
+    public static PropertyKey<Property> get(String name) {
+        return new PropertyKey<Property>(name, intern(name));
+    }
+
+    /**
+     * Get the id of a name, assigning the next free one if it is new.
+     */
+    static int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id.intValue();
+
+        synchronized (names) {
+            id = ids.get(name);
+            if (id == null) {
+                id = Integer.valueOf(names.size());
+                names.add(name);
+                ids.put(name, id);
+            }
+        }
+        return id.intValue();
+    }
+
+    /**
+     * Get the id of a name, or -1 if it has never been interned, in which
+     * case no PropertySet can contain it.
+     */
+    static int idOf(String name) {
+        Integer id = ids.get(name);
+        return (id == null) ? -1 : id.intValue();
+    }
+
+    /**
+     * Get the name with the given id.
+     */
+    static String nameOf(int id) {
+        synchronized (names) {
+            return names.get(id);
+        }
+    }
+
+    /** The name of the property. */
+    public String getName() {
+        return name;
+    }
+
+    /** The id of the name, unique to it. */
+    public int getId() {
+        return id;
+    }
+
+    public String toString() {
+        return name;
+    }
+}
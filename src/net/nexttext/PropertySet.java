@@ -19,8 +19,10 @@
 
 package net.nexttext;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -37,11 +39,33 @@ import net.nexttext.property.Property;
  * original Property values to be stored correctly, it reduces the number of
  * checks that have to be done in behaviours, and means that concurrent access
  * is feasible.  </p>
+ *
+ * <p>Properties are stored in an array indexed by the id of their {@link
+ * PropertyKey}, so lookups by key avoid hashing altogether.  Lookups by name
+ * are still supported, and go through the same array.  </p>
+ *
+ * <p>A property can also be initialized with a shared default, see {@link
+ * #initShared}.  The default is only copied into the set the first time the
+ * property is retrieved, so objects which never touch a property do not pay
+ * for their own copy of it.  </p>
  */
 /* $Id$ */
 public class PropertySet {
     
-    HashMap<String, Property> properties = new HashMap<String, Property>();
+    private static final Property[] EMPTY = new Property[0];
+
+    // Behaviours on different threads may get different properties of the
+    // same object, so changes to the array and to the shared bits are made
+    // while holding the set's lock, and both fields are volatile so that
+    // lookups can go without it.
+    volatile Property[] properties = EMPTY;
+    int count = 0;
+
+    // Bit n is set while slot n holds a shared default rather than a property
+    // of our own.  Only the first 64 ids can be shared, the rest are copied.
+    private volatile long shared = 0;
+    // The shared defaults which came from a template rather than initShared().
+    private long fromTemplate = 0;
     
     /**
      * Initialize the property with this value, if it's not already defined.
@@ -50,10 +74,83 @@ public class PropertySet {
      * list.</p>
      */
     public void init(String name, Property value) {
-        if (!properties.containsKey(name)) {
+        init(PropertyKey.intern(name), name, value);
+    }
+
+    /**
+     * Initialize the property with this value, if it's not already defined.
+     *
+     * <p>See init(String, Property).</p>
+     */
+    public void init(PropertyKey<?> key, Property value) {
+        init(key.getId(), key.getName(), value);
+    }
+
+    private synchronized void init(int id, String name, Property value) {
+        grow(id);
+        if (properties[id] == null) {
             value.setName(name);
-            properties.put(name, value.clone());
+            properties[id] = value.clone();
+            count++;
+        }
+    }
+
+    /**
+     * Initialize the property with a shared default, if it's not already
+     * defined.
+     *
+     * <p>Unlike init(), the default is not cloned until the property is first
+     * retrieved with get(), so the same default can back the property in any
+     * number of sets.  It must never be modified after this call.  </p>
+     */
+    public synchronized void initShared(PropertyKey<?> key, Property value) {
+        int id = key.getId();
+        if (id >= 64) {
+            init(key, value);
+            return;
+        }
+        grow(id);
+        if (properties[id] == null) {
+            value.setName(key.getName());
+            properties[id] = value;
+            shared |= 1L << id;
+            count++;
+        }
+    }
+
+    private void grow(int id) {
+        if (id >= properties.length) {
+            Property[] grown = new Property[Math.max(id + 1, properties.length * 2)];
+            System.arraycopy(properties, 0, grown, 0, properties.length);
+            properties = grown;
+        }
+    }
+
+    /**
+     * Make a property of our own from the shared default in slot id.
+     *
+     * <p>Subclasses can override this to build the property differently, or
+     * to set it up (eg. add listeners) once it exists.  </p>
+     */
+    protected Property materialize(int id, Property sharedDefault) {
+        return sharedDefault.clone();
+    }
+
+    private Property own(int id) {
+        if (id < 64 && (shared & (1L << id)) != 0) {
+            return ownShared(id);
+        }
+        return properties[id];
+    }
+
+    // The property is stored before the bit is cleared, so a thread which
+    // sees the bit clear also sees our own copy.
+    private synchronized Property ownShared(int id) {
+        if ((shared & (1L << id)) != 0) {
+            properties[id] = materialize(id, properties[id]);
+            shared &= ~(1L << id);
         }
+        return properties[id];
     }
 
     /**
@@ -71,23 +168,100 @@ public class PropertySet {
         }
     }
     
+    /**
+     * Initialize all the properties in the template, if not already defined.
+     *
+     * <p>Those with one of the first 64 ids are shared with the template
+     * until they are first retrieved, the rest are cloned.  </p>
+     */
+    public synchronized void init(PropertyTemplate template) {
+        if (template.maxId < 0) return;
+        grow(template.maxId);
+        long s = shared;
+        int[] ids = template.ids;
+        for (int j = 0; j < ids.length; j++) {
+            int id = ids[j];
+            if (properties[id] == null) {
+                if (id < 64) {
+                    properties[id] = template.values[j];
+                    s |= 1L << id;
+                    fromTemplate |= 1L << id;
+                } else {
+                    properties[id] = template.values[j].clone();
+                }
+                count++;
+            }
+        }
+        shared = s;
+    }
+
     /** Get the named property, null if it's not there. */
     public Property get(String name) {
-        return (Property) properties.get(name);
+        int id = PropertyKey.idOf(name);
+        return (id >= 0 && id < properties.length) ? own(id) : null;
+    }
+
+    /** Get the property for the key, null if it's not there. */
+    @SuppressWarnings("unchecked")
+    public <T extends Property> T get(PropertyKey<T> key) {
+        int id = key.getId();
+        return (id < properties.length) ? (T) own(id) : null;
+    }
+
+    /**
+     * Get the property for the key without making a copy of a shared
+     * default, null if it's not there.
+     *
+     * <p>The returned property must only be read, since it may be shared
+     * with other sets.  </p>
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Property> T peek(PropertyKey<T> key) {
+        int id = key.getId();
+        return (id < properties.length) ? (T) properties[id] : null;
+    }
+
+    /** Whether the property for the key is still a shared default. */
+    public boolean isShared(PropertyKey<?> key) {
+        int id = key.getId();
+        return id < 64 && (shared & (1L << id)) != 0;
     }
 
     /** Names of all the properties, in an unmodifiable set. */
     public Set<String> getNames() {
-        return java.util.Collections.unmodifiableSet(properties.keySet());
+        Set<String> names = new LinkedHashSet<String>(count * 2);
+        for (int id = 0; id < properties.length; id++) {
+            if (properties[id] != null)
+                names.add(PropertyKey.nameOf(id));
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * The properties as a map from names, for copying into another set.
+     * Shared defaults are left out, the other set is expected to start from
+     * the same defaults, except for those which came from a template.
+     */
+    synchronized Map<String, Property> toMap() {
+        Map<String, Property> map = new HashMap<String, Property>(count * 2);
+        long skip = shared & ~fromTemplate;
+        for (int id = 0; id < properties.length; id++) {
+            if (properties[id] != null && !(id < 64 && (skip & (1L << id)) != 0))
+                map.put(PropertyKey.nameOf(id), properties[id]);
+        }
+        return map;
     }
     
     /**
      * Resets all the properties to their original value.
+     *
+     * <p>Shared defaults are always at their original value, and are left
+     * alone.  </p>
      */
     public void reset() {        
-        Iterator<String> i = getNames().iterator();
-        while (i.hasNext()) {
-            get(i.next()).reset();
+        for (int id = 0; id < properties.length; id++) {
+            if (properties[id] != null && !(id < 64 && (shared & (1L << id)) != 0))
+                properties[id].reset();
         }
     }
 }
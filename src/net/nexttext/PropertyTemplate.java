@@ -0,0 +1,84 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import net.nexttext.property.Property;
+
+/**
+ * A set of properties to initialize objects with, prepared once so that each
+ * object is quick to initialize.
+ *
+ * <p>The template is made from the map an action returns from
+ * getRequiredProperties().  It looks up the ids of the names and keeps its own
+ * copy of each property, so {@link PropertySet#init(PropertyTemplate)} can
+ * fill in all the missing properties of a set in one go, without hashing.
+ * Where it can, the set shares the template's copy as a default rather than
+ * cloning it, see {@link PropertySet#initShared}.  </p>
+ */
+/* $Id$ */
+public class PropertyTemplate {
+
+    public static final PropertyTemplate EMPTY =
+        new PropertyTemplate(Collections.<String, Property>emptyMap());
+
+    final int[] ids;
+    final Property[] values;
+    final int maxId;
+    private final Set<String> names;
+
+    public PropertyTemplate(Map<String, Property> properties) {
+        int n = properties.size();
+        ids = new int[n];
+        values = new Property[n];
+        Set<String> names = new LinkedHashSet<String>();
+        int max = -1;
+        int j = 0;
+        Iterator<Map.Entry<String, Property>> i = properties.entrySet().iterator();
+        while (i.hasNext()) {
+            Map.Entry<String, Property> e = i.next();
+            String name = e.getKey();
+            Property value = e.getValue().clone();
+            value.setName(name);
+            ids[j] = PropertyKey.intern(name);
+            values[j] = value;
+            max = Math.max(max, ids[j]);
+            names.add(name);
+            j++;
+        }
+        maxId = max;
+        this.names = Collections.unmodifiableSet(names);
+    }
+
+    /** The number of properties in the template. */
+    public int size() {
+        return ids.length;
+    }
+
+    /** The names of the properties, in an unmodifiable set. */
+    public Set<String> getNames() {
+        return names;
+    }
+}
@@ -21,6 +21,7 @@ package net.nexttext;
 
 import java.awt.Rectangle;
 import java.awt.Shape;
+import java.util.Random;
 
 import processing.core.PVector;
 
@@ -34,14 +35,23 @@ import processing.core.PVector;
  * <p>Because of the way getLocation() is implemented, very thin shapes with
  * large bounding boxes may cause it to lock up in a loop trying to find a
  * point inside.  </p>
+ *
+ * <p>For locations which are the same every run, give it a generator split
+ * off from the Book's {@link RandomSource}.  </p>
  */
 /* $Id$ */
 public class RandomLocation implements Locatable  {
 
     Shape shape;
+    Random random;
 
     public RandomLocation(Shape shape) {
+        this(shape, new Random());
+    }
+
+    public RandomLocation(Shape shape, Random random) {
         this.shape = shape;
+        this.random = random;
     }
 
     public PVector getLocation() {
@@ -49,8 +59,8 @@ public class RandomLocation implements Locatable  {
         float x,y;
         do {
             Rectangle bounds = shape.getBounds();
-            x = (float)(bounds.x + Math.random() * bounds.width);
-            y = (float)(bounds.y + Math.random() * bounds.height);
+            x = bounds.x + random.nextFloat() * bounds.width;
+            y = bounds.y + random.nextFloat() * bounds.height;
         } while (!shape.contains(x, y));
 
         return new PVector(x, y);
@@ -0,0 +1,101 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext;
+
+import java.util.Random;
+
+/**
+ * Random numbers for behaviours, which come out the same each time a program
+ * is run with the same seed.
+ *
+ * <p>Drawing from a single generator would make the numbers depend on the
+ * order the objects happen to be processed in, and threads processing
+ * objects at the same time would contend for it.  Instead each number is
+ * worked out by hashing the seed together with a key, such as the object, the
+ * step, the action and which of the action's numbers it is.  The same key
+ * always gives the same number, and different keys give independent ones, so
+ * no state is shared.  </p>
+ *
+ * <p>Each Book has one, see {@link Book#getRandom()}.  Actions normally get
+ * their numbers through {@link
+ * net.nexttext.behaviour.AbstractAction#random}.  Code which needs an
+ * ordinary generator can {@link #split} one off.  </p>
+ */
+/* $Id$ */
+public class RandomSource {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private volatile long seed;
+
+    /**
+     * A source with a seed taken from the system timer.  Use {@link
+     * #getSeed()} to find out what it was, so the run can be repeated.
+     */
+    public RandomSource() {
+        this(System.nanoTime());
+    }
+
+    public RandomSource(long seed) {
+        this.seed = seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * 64 random bits for the given key.
+     */
+    public long bits(long a, long b, long c, long d) {
+        long h = mix(seed + GOLDEN_GAMMA);
+        h = mix(h + (a + 1) * GOLDEN_GAMMA);
+        h = mix(h + (b + 1) * GOLDEN_GAMMA);
+        h = mix(h + (c + 1) * GOLDEN_GAMMA);
+        return mix(h + (d + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * A number from 0 up to but not including 1 for the given key.
+     */
+    public float nextFloat(long a, long b, long c, long d) {
+        return (bits(a, b, c, d) >>> 40) / (float) (1 << 24);
+    }
+
+    /**
+     * A generator of its own, seeded from this source and the key.  The
+     * generator is not shared, so it should only be used by one thread.
+     */
+    public Random split(long key) {
+        return new Random(bits(key, 0, 0, 0));
+    }
+
+    // The finishing step of the SplitMix64 generator, which scrambles the
+    // bits well enough that consecutive inputs give unrelated outputs.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,265 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext;
+
+/**
+ * Decides how many simulation steps the Book takes each time it is stepped.
+ *
+ * <p>By default the clock is variable: every call to {@link Book#step()}
+ * takes exactly one simulation step, however long it has been since the last
+ * one, which is how NextText has always worked.  Behaviours then advance once
+ * per frame, so their speed depends on the frame rate.  </p>
+ *
+ * <p>Given a fixed timestep with {@link #setTimestep}, the clock instead adds
+ * up the real time which passes between calls to step(), and the Book takes
+ * as many steps of that length as fit, so the simulation runs at the same
+ * speed whatever the frame rate.  A 30 Hz simulation can be drawn at 60 Hz,
+ * or the reverse.  So that a slow machine doesn't fall further and further
+ * behind, no more than {@link #getMaxSubsteps()} steps are taken at once, and
+ * time beyond that is dropped.  </p>
+ *
+ * <p>With a fixed timestep the time left over after the last step is
+ * normally part of a step, so what's drawn would lag behind by up to a
+ * step.  If interpolation is on, renderers draw each object's position and
+ * rotation part way between the last two steps instead, see {@link
+ * #getAlpha()}.  </p>
+ *
+ * <p>During a step actions can find its length in seconds with {@link
+ * #getDt()}, and the simulated time with {@link #getTimeNanos()}.  The real
+ * time is read once each time the Book is stepped, from a {@link TimeSource}
+ * which can be replaced to make the simulation repeatable.  </p>
+ */
+/* $Id$ */
+public class SimulationClock {
+
+    private static final float NANOS_PER_SECOND = 1e9f;
+
+    /**
+     * Where the clock reads the real time from.
+     */
+    public interface TimeSource {
+        /** The time in nanoseconds, from some fixed but arbitrary origin. */
+        long nanoTime();
+    }
+
+    /**
+     * The system's high resolution timer, the default source.
+     */
+    public static final TimeSource SYSTEM_TIME = new TimeSource() {
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private TimeSource source = SYSTEM_TIME;
+
+    // What's read during a step, by actions and renderers perhaps on other
+    // threads, is volatile.  Changes are synchronized.
+
+    // 0 if the clock is variable.
+    private volatile float timestep = 0;
+    private volatile int maxSubsteps = 5;
+    private volatile boolean interpolating = true;
+
+    private long lastNanos = 0;
+    private boolean started = false;
+    // Real time not yet simulated, in nanoseconds.
+    private long accumulated = 0;
+
+    private volatile float dt = 0;
+    private long dtNanos = 0;
+    private volatile long realNanos = 0;
+    private volatile long timeNanos = 0;
+    private volatile long steps = 0;
+    private volatile float alpha = 1;
+
+    /**
+     * Read the real time from somewhere else, such as a source which a test
+     * moves on by a set amount for each frame.
+     */
+    public synchronized void setTimeSource(TimeSource source) {
+        this.source = source;
+        started = false;
+    }
+
+    public synchronized TimeSource getTimeSource() {
+        return source;
+    }
+
+    /**
+     * Simulate in steps of the given number of seconds, or one step per
+     * frame if it is zero.
+     */
+    public synchronized void setTimestep(float seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("Timestep must not be negative");
+        }
+        timestep = seconds;
+        accumulated = 0;
+        alpha = 1;
+    }
+
+    /**
+     * The length of a fixed step in seconds, zero if the clock is variable.
+     */
+    public float getTimestep() {
+        return timestep;
+    }
+
+    /**
+     * Whether the clock takes steps of a fixed length.
+     */
+    public boolean isFixed() {
+        return timestep > 0;
+    }
+
+    /**
+     * Set the most steps to take for one call to {@link Book#step()}.
+     */
+    public synchronized void setMaxSubsteps(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("At least one substep is needed");
+        }
+        maxSubsteps = max;
+    }
+
+    public int getMaxSubsteps() {
+        return maxSubsteps;
+    }
+
+    /**
+     * Whether to draw objects part way between steps, when the timestep is
+     * fixed.  On by default.
+     */
+    public synchronized void setInterpolating(boolean interpolating) {
+        this.interpolating = interpolating;
+    }
+
+    /**
+     * Whether objects are drawn part way between steps.  Always false for a
+     * variable clock.
+     */
+    public boolean isInterpolating() {
+        return interpolating && timestep > 0;
+    }
+
+    /**
+     * The length in seconds of the step being taken, or last taken.
+     *
+     * <p>For a variable clock this is the real time since the previous step,
+     * and zero for the first one.  </p>
+     */
+    public float getDt() {
+        return dt;
+    }
+
+    /**
+     * The simulated time in seconds, the sum of the lengths of all the steps
+     * so far.
+     */
+    public double getTime() {
+        return timeNanos / (double) NANOS_PER_SECOND;
+    }
+
+    /**
+     * The simulated time in nanoseconds.  This is what time based actions
+     * should measure with, since it is the same for every object in a step
+     * and costs nothing to read.
+     */
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    /**
+     * The real time read from the time source the last time the Book was
+     * stepped.
+     */
+    public long getRealNanos() {
+        return realNanos;
+    }
+
+    /**
+     * The number of steps taken so far.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * How far the time being drawn is between the last two steps, from 0 for
+     * the one before the last to 1 for the last.  Always 1 unless
+     * interpolating.
+     */
+    public float getAlpha() {
+        return isInterpolating() ? alpha : 1;
+    }
+
+    /**
+     * Read the real time, and work out how many steps to take.
+     */
+    synchronized int advance() {
+        return advance(source.nanoTime());
+    }
+
+    /**
+     * Work out how many steps to take now that the real time is
+     * <code>nanos</code>.
+     */
+    synchronized int advance(long nanos) {
+        long elapsed = started ? nanos - lastNanos : 0;
+        if (elapsed < 0) elapsed = 0;
+        lastNanos = nanos;
+        realNanos = nanos;
+
+        if (timestep == 0) {
+            started = true;
+            dtNanos = elapsed;
+            dt = elapsed / NANOS_PER_SECOND;
+            return 1;
+        }
+
+        dt = timestep;
+        long step = (long) (timestep * NANOS_PER_SECOND);
+        if (step < 1) step = 1;
+        dtNanos = step;
+        if (!started) {
+            // Take the first step straight away.
+            started = true;
+            accumulated = step;
+        } else {
+            accumulated += elapsed;
+        }
+        if (accumulated > step * maxSubsteps) {
+            accumulated = step * maxSubsteps;
+        }
+        int n = (int) (accumulated / step);
+        accumulated -= n * step;
+        alpha = (float) accumulated / step;
+        return n;
+    }
+
+    /**
+     * Count a step as taken.
+     */
+    synchronized void stepped() {
+        timeNanos += dtNanos;
+        steps++;
+    }
+}
@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Set;
  
 /**
  * The SpatialList class is used to keep track of the TextObjects in a spatially
@@ -178,7 +179,7 @@ public class SpatialList {
 	 */
 	public void add( TextObjectGlyph to ) {
 		
-	    if (to.toString().equals(" ")) {
+	    if (to.isSpace()) {
 	        // don't add spaces..
 	        return;
 	    }
@@ -257,6 +258,37 @@ public class SpatialList {
 		yCollisions.remove(to);	
 	}
 	
+	/**
+	 * Removes a number of glyphs from the spatial list at once, which only
+	 * takes a single pass over the edges.
+	 */
+	public void removeAll( Set<TextObjectGlyph> tos ) {
+		if ( tos.isEmpty() ) return;
+
+        Iterator<Edge> ei = xAxis.iterator();
+        while (ei.hasNext()) { if (tos.contains(ei.next().to)) ei.remove(); }
+        ei = yAxis.iterator();
+        while (ei.hasNext()) { if (tos.contains(ei.next().to)) ei.remove(); }
+
+		for ( Iterator<TextObjectGlyph> i = tos.iterator(); i.hasNext(); ) {
+			TextObjectGlyph to = i.next();
+			removeCollisions( to, xCollisions );
+			removeCollisions( to, yCollisions );
+		}
+	}
+
+	// Remove an object's entry from a collisions map, and any references to
+	// it from the objects it collided with.
+	private void removeCollisions( TextObjectGlyph to, HashMap<TextObject, HashSet<TextObjectGlyph>> collisions ) {
+		HashSet<TextObjectGlyph> col = collisions.remove(to);
+		if ( col != null ) {
+			for ( Iterator<TextObjectGlyph> i = col.iterator(); i.hasNext(); ) {
+				HashSet<TextObjectGlyph> temp = collisions.get( i.next() );
+				if ( temp != null ) temp.remove(to);
+			}
+		}
+	}
+	
 	/**
 	 * Adds all the glyphs part of a TextObjectGroup to the spatial list.
 	 */
@@ -19,6 +19,8 @@
 
 package net.nexttext;
 
+import net.nexttext.behaviour.AbstractBehaviour;
+import net.nexttext.behaviour.ActionState;
 import net.nexttext.property.*;
 
 import java.awt.Color;
@@ -28,6 +30,7 @@ import java.awt.Rectangle;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import processing.core.PVector;
 
@@ -53,6 +56,46 @@ import processing.core.PVector;
  */
 /* $Id$ */
 public abstract class TextObject implements Locatable {
+
+    // Keys for the standard properties of every TextObject.
+    public static final PropertyKey<DateTimeProperty> BIRTH_DATE_TIME =
+        PropertyKey.get("BirthDateTime", DateTimeProperty.class);
+    public static final PropertyKey<PVectorProperty> POSITION =
+        PropertyKey.get("Position", PVectorProperty.class);
+    public static final PropertyKey<PVectorProperty> ORIGINAL_POSITION =
+        PropertyKey.get("OriginalPosition", PVectorProperty.class);
+    public static final PropertyKey<NumberProperty> ROTATION =
+        PropertyKey.get("Rotation", NumberProperty.class);
+    public static final PropertyKey<ColorProperty> COLOR =
+        PropertyKey.get("Color", ColorProperty.class);
+    public static final PropertyKey<StrokeProperty> STROKE =
+        PropertyKey.get("Stroke", StrokeProperty.class);
+    public static final PropertyKey<ColorProperty> STROKE_COLOR =
+        PropertyKey.get("StrokeColor", ColorProperty.class);
+
+    // Shared defaults for the standard properties.  Most objects never change
+    // most of these, so each object only gets its own copy of a property when
+    // the property is first retrieved.  See PropertySet.initShared().
+    private static final PVectorProperty DEFAULT_POSITION = new PVectorProperty(new PVector(0,0,0));
+    private static final PVectorProperty DEFAULT_ORIGINAL_POSITION = new PVectorProperty(new PVector(0,0,0));
+    private static final NumberProperty DEFAULT_ROTATION = new NumberProperty(0);
+    private static final ColorProperty DEFAULT_COLOR = new ColorProperty();
+    private static final StrokeProperty DEFAULT_STROKE = new StrokeProperty();
+    private static final ColorProperty DEFAULT_STROKE_COLOR = new ColorProperty();
+    // The birth date differs for each object, so this default only stands in
+    // for it until it's needed, when it is built from birthTime.
+    private static final DateTimeProperty DEFAULT_BIRTH_DATE_TIME = new DateTimeProperty(0);
+
+    private long birthTime = System.currentTimeMillis();
+
+    // Numbers the objects in the order they are made, which is the same each
+    // time a program runs, for keying random numbers.
+    private static final AtomicLong nextSerial = new AtomicLong();
+    private final long serial = nextSerial.getAndIncrement();
+
+    // Listens to the properties which affect the cached coordinate systems and
+    // colour flags.  It is created along with the first of those properties.
+    private PropertyChangeListener pcl;
 	
     // The parent node in the TextObject tree.  If parent is null, it means
     // either that this is not part of the hierarchy attached to the book, or
@@ -115,31 +158,65 @@ public abstract class TextObject implements Locatable {
      */
     protected TextObject(Map<String, Property> propertyMap) {
         properties.init(propertyMap);
-        properties.init("BirthDateTime", new DateTimeProperty());
-        properties.init("Position", new PVectorProperty(new PVector(0,0,0)));
-        properties.init("OriginalPosition", new PVectorProperty(new PVector(0,0,0)));
-        properties.init("Rotation", new NumberProperty( 0 ));
-        properties.init("Color", new ColorProperty() );
-        properties.init("Stroke", new StrokeProperty());
-        properties.init("StrokeColor", new ColorProperty());
-        PropertyChangeListener pcl = new PropertyChangeListener() {
+        properties.initShared(BIRTH_DATE_TIME, DEFAULT_BIRTH_DATE_TIME);
+        properties.initShared(POSITION, DEFAULT_POSITION);
+        properties.initShared(ORIGINAL_POSITION, DEFAULT_ORIGINAL_POSITION);
+        properties.initShared(ROTATION, DEFAULT_ROTATION);
+        properties.initShared(COLOR, DEFAULT_COLOR);
+        properties.initShared(STROKE, DEFAULT_STROKE);
+        properties.initShared(STROKE_COLOR, DEFAULT_STROKE_COLOR);
+
+        // Properties which were passed in already exist, the others will be
+        // watched when they are materialized.
+        watch(POSITION);
+        watch(ROTATION);
+        watch(COLOR);
+        watch(STROKE_COLOR);
+        watch(STROKE);
+        
+        filled = properties.peek(COLOR).get().getAlpha() > 0;
+        stroked = properties.peek(STROKE_COLOR).get().getAlpha() > 0;
+    }
+
+    private void watch(PropertyKey<?> key) {
+        if (!properties.isShared(key))
+            watch(key.getId(), properties.peek(key));
+    }
+
+    private void watch(int id, Property property) {
+        if (id != POSITION.getId() && id != ROTATION.getId() &&
+            id != COLOR.getId() && id != STROKE_COLOR.getId() &&
+            id != STROKE.getId())
+            return;
+
+        if (pcl == null) {
+            pcl = new PropertyChangeListener() {
                 public void propertyChanged(Property propertyThatChanged) {
-                    if (propertyThatChanged == properties.get("Position") ||
-                        propertyThatChanged == properties.get("Rotation"))
+                    if (propertyThatChanged == properties.peek(POSITION) ||
+                        propertyThatChanged == properties.peek(ROTATION))
                         coordChanged();
-                    if (propertyThatChanged == properties.get("Color") ||
-                        propertyThatChanged == properties.get("StrokeColor"))
+                    if (propertyThatChanged == properties.peek(COLOR)) {
+                        ownStyleChanged(COLOR, colorSource, propertyThatChanged);
+                        colourFlagChanged((ColorProperty)propertyThatChanged);
+                    }
+                    if (propertyThatChanged == properties.peek(STROKE_COLOR)) {
+                        ownStyleChanged(STROKE_COLOR, strokeColorSource, propertyThatChanged);
                         colourFlagChanged((ColorProperty)propertyThatChanged);
+                    }
+                    if (propertyThatChanged == properties.peek(STROKE))
+                        ownStyleChanged(STROKE, strokeSource, propertyThatChanged);
                 }
-        };
+            };
+        }
+        property.addChangeListener(pcl);
 
-        properties.get("Position").addChangeListener(pcl);
-        properties.get("Rotation").addChangeListener(pcl);
-        properties.get("Color").addChangeListener(pcl);
-        properties.get("StrokeColor").addChangeListener(pcl);
-        
-        filled = ((ColorProperty)properties.get("Color")).get().getAlpha() > 0;
-        stroked = ((ColorProperty)properties.get("StrokeColor")).get().getAlpha() > 0;;
+        // A property which replaces a shared default is a new source.
+        if (id == COLOR.getId())
+            styleChanged(COLOR);
+        else if (id == STROKE_COLOR.getId())
+            styleChanged(STROKE_COLOR);
+        else if (id == STROKE.getId())
+            styleChanged(STROKE);
     }
 
     /** Get the left Sibling, or null if there isn't one. */
@@ -152,10 +229,16 @@ public abstract class TextObject implements Locatable {
     public TextObjectGroup getParent() { return parent; }
 
     /** Get the flag telling if the stroke is activated or not. **/
-    public boolean isStroked() { return stroked; }
+    public boolean isStroked() {
+        Property.flushBatch();
+        return stroked;
+    }
     
     /** Get the flag telling if the fill colour is activated or not. **/
-    public boolean isFilled() { return filled; }
+    public boolean isFilled() {
+        Property.flushBatch();
+        return filled;
+    }
     
     /** Attach the given TextObject to the right of this one. */
     public void attachToRight(TextObject newRightSibling) {
@@ -203,6 +286,9 @@ public abstract class TextObject implements Locatable {
         
         parent.numChildren--;
         parent.invalidateLocalBoundingPolygon();
+        parent.textChanged();
+        if (parent.numChildren == 0 && parent.book != null)
+            parent.book.groupEmptied(parent);
         
         parent = null;
         leftSibling = null;
@@ -210,6 +296,7 @@ public abstract class TextObject implements Locatable {
 
         setBook(null);
         globalCoordChanged();
+        parentChanged();
     }
 	
     /**
@@ -270,14 +357,22 @@ public abstract class TextObject implements Locatable {
     // set to the current frame count, meaning it will become invalid on the
     // next frame.
 
+    // The caches are invalidated by property change listeners.  Those events
+    // can be held back in a batch (see Property.beginBatch()), so the methods
+    // which return cached values must first flush any pending events.
+
+    // Behaviours may run on several threads at once, and objects invalidate
+    // their parent's caches as they change, so the frame counts are volatile
+    // to make sure a write from one thread is seen whole by the others.
+
     protected Polygon localBoundingPolygon = null;
-    protected long localBoundingPolygonValidToFrame = -1;
+    protected volatile long localBoundingPolygonValidToFrame = -1;
 
     protected Polygon relativeBoundingPolygon = null;
-    protected long relativeBoundingPolygonValidToFrame = -1;
+    protected volatile long relativeBoundingPolygonValidToFrame = -1;
 
     protected Polygon globalBoundingPolygon = null;
-    protected long globalBoundingPolygonValidToFrame = -1;
+    protected volatile long globalBoundingPolygonValidToFrame = -1;
 
     // If a BP will already be invalid on the next frame, there is no need to
     // invalidate it or those which depend on it.
@@ -317,6 +412,7 @@ public abstract class TextObject implements Locatable {
      * @see TextObjectGroup#getLocalBoundingPolygon
      */
     public synchronized Polygon getBoundingPolygon() {
+        Property.flushBatch();
 
         if (globalBoundingPolygonValidToFrame >= getFrameCount()) {
             return globalBoundingPolygon;
@@ -365,6 +461,7 @@ public abstract class TextObject implements Locatable {
      * position, which is its parent's coordinate system.  <p>
      */
     public synchronized Polygon getRelativeBoundingPolygon() {
+        Property.flushBatch();
 
         if (relativeBoundingPolygonValidToFrame >= getFrameCount()) {
             return relativeBoundingPolygon;
@@ -385,12 +482,18 @@ public abstract class TextObject implements Locatable {
      */
     public abstract Polygon getLocalBoundingPolygon(); 
     
-    // Coordinate systems are cached and stored in the same way as BPs.
+    // Coordinate systems are cached and stored in the same way as BPs.  Their
+    // getters lock coordLock rather than the object, since a global
+    // coordinate system is built from the parent's while BP getters lock a
+    // parent before its children.  Coordinate locks are only ever taken going
+    // up the tree, and BP locks going down, so they can't dead-lock.
     protected CoordinateSystem relativeCoordinateSystem = null;
-    protected long relativeCoordinateSystemValidToFrame = -1;
+    protected volatile long relativeCoordinateSystemValidToFrame = -1;
 
     protected CoordinateSystem globalCoordinateSystem = null;
-    protected long globalCoordinateSystemValidToFrame = -1;
+    protected volatile long globalCoordinateSystemValidToFrame = -1;
+
+    private final Object coordLock = new Object();
 
     protected void invalidateRelativeCoordinateSystem() {
         if (relativeCoordinateSystemValidToFrame > getFrameCount()) {
@@ -413,12 +516,16 @@ public abstract class TextObject implements Locatable {
      * coordinate system into its parent's coordinates.  </p>
      */
     public CoordinateSystem getRelativeCoordinateSystem() {
-        if (relativeCoordinateSystemValidToFrame < getFrameCount()) {
-            relativeCoordinateSystemValidToFrame = Long.MAX_VALUE;
-            relativeCoordinateSystem =
-                new CoordinateSystem(getPosition().get(), getRotation().get());
+        Property.flushBatch();
+        synchronized (coordLock) {
+            if (relativeCoordinateSystemValidToFrame < getFrameCount()) {
+                relativeCoordinateSystemValidToFrame = Long.MAX_VALUE;
+                relativeCoordinateSystem =
+                    new CoordinateSystem(properties.peek(POSITION).get(),
+                                         properties.peek(ROTATION).get());
+            }
+            return relativeCoordinateSystem;
         }
-        return relativeCoordinateSystem;
     }
 
     /**
@@ -429,18 +536,21 @@ public abstract class TextObject implements Locatable {
      * coordinate system into the global (or screen) coordinates.  </p>
      */
     public CoordinateSystem getAbsoluteCoordinateSystem() {
-        if (globalCoordinateSystemValidToFrame < getFrameCount()) {
-            globalCoordinateSystemValidToFrame = Long.MAX_VALUE;
-            if (parent == null)
-                globalCoordinateSystem = getRelativeCoordinateSystem();
-            else {
-                globalCoordinateSystem =
-                    new CoordinateSystem(getPosition().get(),
-                                         getRotation().get(),
-                                         parent.getAbsoluteCoordinateSystem());
+        Property.flushBatch();
+        synchronized (coordLock) {
+            if (globalCoordinateSystemValidToFrame < getFrameCount()) {
+                globalCoordinateSystemValidToFrame = Long.MAX_VALUE;
+                if (parent == null)
+                    globalCoordinateSystem = getRelativeCoordinateSystem();
+                else {
+                    globalCoordinateSystem =
+                        new CoordinateSystem(properties.peek(POSITION).get(),
+                                             properties.peek(ROTATION).get(),
+                                             parent.getAbsoluteCoordinateSystem());
+                }
             }
+            return globalCoordinateSystem;
         }
-        return globalCoordinateSystem;
     }
 
     // Called when either the position or rotation of the object has changed.
@@ -471,7 +581,19 @@ public abstract class TextObject implements Locatable {
 	 * here.  In AbstractAction the property set is made public.  Consistency
 	 * in these two places may benefit us.  </p>
      */
-    protected PropertySet properties = new PropertySet();
+    protected PropertySet properties = new PropertySet() {
+        protected Property materialize(int id, Property sharedDefault) {
+            Property property;
+            if (id == BIRTH_DATE_TIME.getId()) {
+                property = new DateTimeProperty(birthTime);
+                property.setName(sharedDefault.getName());
+            } else {
+                property = sharedDefault.clone();
+            }
+            watch(id, property);
+            return property;
+        }
+    };
 	
     /**
      * Initialize a bunch of properties.
@@ -479,6 +601,13 @@ public abstract class TextObject implements Locatable {
     public void initProperties( Map<String, Property> propertyMap ) {
         properties.init(propertyMap);
     }
+
+    /**
+     * Initialize the properties in a template, see {@link PropertyTemplate}.
+     */
+    public void initProperties( PropertyTemplate template ) {
+        properties.init(template);
+    }
     
     /**
      * Initialize a single of property.
@@ -493,7 +622,34 @@ public abstract class TextObject implements Locatable {
     public Property getProperty( String name ) {
         return properties.get(name);
     }
+
+    /**
+     * Initialize a single property, by key.
+     */
+    public void init( PropertyKey<?> key, Property property ) {
+        properties.init(key, property);
+    }
+
+    /**
+     * Get a single property, by key.  This is faster than looking it up by
+     * name, and saves a cast.
+     */
+    public <T extends Property> T getProperty( PropertyKey<T> key ) {
+        return properties.get(key);
+    }
 	 
+    /**
+     * Get a single property, by key, for reading only.
+     *
+     * <p>Unlike getProperty(), this does not give the object its own copy of
+     * a property which is still at its shared default, so the returned
+     * property must not be modified.  It is meant for code which reads many
+     * objects' properties every frame, such as renderers.  </p>
+     */
+    public <T extends Property> T peekProperty( PropertyKey<T> key ) {
+        return properties.peek(key);
+    }
+
     /**
      * Get the names of all properties.
      */
@@ -508,35 +664,35 @@ public abstract class TextObject implements Locatable {
      * A getter for the standard "Position" property.  
      */
     public PVectorProperty getPosition() {
-    	return (PVectorProperty)(properties.get("Position"));    	
+    	return properties.get(POSITION);    	
     }
     
     /**
      * A getter for the standard "Color" property.
      */
     public ColorProperty getColor() { 
-        return (ColorProperty)(properties.get("Color"));
+        return properties.get(COLOR);
     }
     
     /**
      * A getter for the standard "StrokeColor" property.
      */
     public ColorProperty getStrokeColor() { 
-        return (ColorProperty)(properties.get("StrokeColor"));
+        return properties.get(STROKE_COLOR);
     }
     
     /**
      * A getter for the standard "Stroke" property.
      */
     public StrokeProperty getStroke() { 
-        return (StrokeProperty)(properties.get("Stroke"));
+        return properties.get(STROKE);
     }
     
     /**
      * A getter for the standard "Rotation" property.
      */
     public NumberProperty getRotation() { 
-        return (NumberProperty)(properties.get("Rotation"));
+        return properties.get(ROTATION);
     }
 
     
@@ -569,6 +725,14 @@ public abstract class TextObject implements Locatable {
         return book;
     }
 
+    /**
+     * The number of this object among all the TextObjects made, counting
+     * from zero.
+     */
+    public long getSerial() {
+        return serial;
+    }
+
     protected synchronized void setBook(Book book) {
         this.book = book;
     }
@@ -591,29 +755,302 @@ public abstract class TextObject implements Locatable {
     public PVector getPositionAbsolute() {              
         return getAbsoluteCoordinateSystem().getOrigin();
     }
+
+    //////////////////////////////////////////////////////////////////////
+    // Interpolation for drawing
+
+    // The position and rotation before the last simulation step, and the
+    // number of the step they were kept before.  Only kept when the book's
+    // clock is interpolating.
+    private float lastX, lastY, lastZ, lastRotation;
+    private long keptBefore = -1;
+
+    /**
+     * Remember the position and rotation, before simulation step number
+     * <code>step</code> is taken.
+     */
+    void keepTransform(long step) {
+        PVectorProperty pos = peekProperty(POSITION);
+        lastX = pos.getX();
+        lastY = pos.getY();
+        lastZ = pos.getZ();
+        lastRotation = peekProperty(ROTATION).get();
+        keptBefore = step;
+    }
+
+    // The fraction of the way to draw this object from its last kept
+    // transform to its current one, or -1 to draw the current one.
+    private float drawAlpha() {
+        Book b = book;
+        if (b == null || keptBefore < 0) return -1;
+        SimulationClock clock = b.getClock();
+        if (!clock.isInterpolating() || keptBefore != clock.getSteps() - 1) {
+            return -1;
+        }
+        return clock.getAlpha();
+    }
+
+    /**
+     * The position to draw this object at, relative to its parent.
+     *
+     * <p>This is the position, unless the book's clock is interpolating, in
+     * which case it is part way between the positions before and after the
+     * last simulation step.  </p>
+     */
+    public PVector getDrawPosition() {
+        PVector pos = peekProperty(POSITION).get();
+        float a = drawAlpha();
+        if (a >= 0) {
+            pos.x = lastX + (pos.x - lastX) * a;
+            pos.y = lastY + (pos.y - lastY) * a;
+            pos.z = lastZ + (pos.z - lastZ) * a;
+        }
+        return pos;
+    }
+
+    /**
+     * The rotation to draw this object at, relative to its parent.
+     *
+     * @see #getDrawPosition()
+     */
+    public float getDrawRotation() {
+        float rotation = peekProperty(ROTATION).get();
+        float a = drawAlpha();
+        if (a >= 0) {
+            rotation = lastRotation + (rotation - lastRotation) * a;
+        }
+        return rotation;
+    }
     
+    //////////////////////////////////////////////////////////////////////
+    // Behaviour membership
+
+    // The behaviours acting on this object, and the object's slot in each
+    // behaviour's TextObjectSet.  They are kept up to date by TextObjectSet,
+    // so that removing the object from the Book only has to visit those
+    // behaviours.  Null until the object is first added to one.
+    private AbstractBehaviour[] behaviours = null;
+    private int[] behaviourSlots = null;
+    private int numBehaviours = 0;
+
+    // Record that a behaviour has started acting on this object.
+    synchronized void behaviourAdded(AbstractBehaviour b, int slot) {
+        if (behaviours == null) {
+            behaviours = new AbstractBehaviour[2];
+            behaviourSlots = new int[2];
+        } else if (numBehaviours == behaviours.length) {
+            AbstractBehaviour[] grown = new AbstractBehaviour[numBehaviours * 2];
+            System.arraycopy(behaviours, 0, grown, 0, numBehaviours);
+            behaviours = grown;
+            int[] grownSlots = new int[numBehaviours * 2];
+            System.arraycopy(behaviourSlots, 0, grownSlots, 0, numBehaviours);
+            behaviourSlots = grownSlots;
+        }
+        behaviours[numBehaviours] = b;
+        behaviourSlots[numBehaviours] = slot;
+        numBehaviours++;
+    }
+
+    // Record that a behaviour has stopped acting on this object.
+    synchronized void behaviourRemoved(AbstractBehaviour b) {
+        for (int i = 0; i < numBehaviours; i++) {
+            if (behaviours[i] == b) {
+                numBehaviours--;
+                behaviours[i] = behaviours[numBehaviours];
+                behaviourSlots[i] = behaviourSlots[numBehaviours];
+                behaviours[numBehaviours] = null;
+                return;
+            }
+        }
+    }
+
+    // The object's slot in the behaviour's TextObjectSet, or -1.
+    synchronized int getBehaviourSlot(AbstractBehaviour b) {
+        for (int i = 0; i < numBehaviours; i++) {
+            if (behaviours[i] == b) return behaviourSlots[i];
+        }
+        return -1;
+    }
+
+    synchronized void setBehaviourSlot(AbstractBehaviour b, int slot) {
+        for (int i = 0; i < numBehaviours; i++) {
+            if (behaviours[i] == b) {
+                behaviourSlots[i] = slot;
+                return;
+            }
+        }
+    }
+
     /**
-     * Returns the absolute color of an Object, inheriting from the parent if 
-     * the ColorProperty has been configured as such.
+     * Get the behaviours currently acting on this object, in no particular
+     * order.
      */
-    public Color getColorAbsolute() {
-        
-        ColorProperty colProp = getColor();
-        
-        if ( !colProp.isInherited() ) {
-            return colProp.get();
+    public synchronized AbstractBehaviour[] getBehaviours() {
+        AbstractBehaviour[] copy = new AbstractBehaviour[numBehaviours];
+        if (numBehaviours > 0)
+            System.arraycopy(behaviours, 0, copy, 0, numBehaviours);
+        return copy;
+    }
+
+    //////////////////////////////////////////////////////////////////////
+    // Action state
+
+    // The state kept for this object by the actions processing it, found by
+    // action id.  An object is rarely processed by more than a few actions at
+    // once, so a linear search is fine.  Null until the first one is added.
+    private ActionState[] actionStates = null;
+    private int numActionStates = 0;
+
+    /**
+     * Get the state kept for this object by the action with the given id, or
+     * null if it has none.
+     *
+     * @see net.nexttext.behaviour.AbstractAction#getState
+     */
+    public synchronized ActionState getActionState(int actionId) {
+        for (int i = 0; i < numActionStates; i++) {
+            if (actionStates[i].getOwner() == actionId) return actionStates[i];
         }
-        else {
-            TextObject parent;
-            if ( ( parent = getParent() ) != null ) {                
-                return parent.getColorAbsolute();
+        return null;
+    }
+
+    /**
+     * Attach state to this object, replacing any state with the same owner.
+     */
+    public synchronized void addActionState(ActionState state) {
+        for (int i = 0; i < numActionStates; i++) {
+            if (actionStates[i].getOwner() == state.getOwner()) {
+                actionStates[i] = state;
+                return;
             }
-            else {
-                // if the parent is null we can't inherit anything, so 
-                // so return the current color
-                return colProp.get();
+        }
+        if (actionStates == null) {
+            actionStates = new ActionState[2];
+        } else if (numActionStates == actionStates.length) {
+            ActionState[] grown = new ActionState[numActionStates * 2];
+            System.arraycopy(actionStates, 0, grown, 0, numActionStates);
+            actionStates = grown;
+        }
+        actionStates[numActionStates++] = state;
+    }
+
+    /**
+     * Drop the state kept by the action with the given id.
+     *
+     * @return the state which was dropped, or null if there was none.
+     */
+    public synchronized ActionState removeActionState(int actionId) {
+        for (int i = 0; i < numActionStates; i++) {
+            ActionState state = actionStates[i];
+            if (state.getOwner() == actionId) {
+                numActionStates--;
+                actionStates[i] = actionStates[numActionStates];
+                actionStates[numActionStates] = null;
+                return state;
             }
         }
+        return null;
+    }
+
+    //////////////////////////////////////////////////////////////////////
+    // Resolved style
+
+    // The properties which the absolute colour, stroke colour and stroke of
+    // this object come from, which are either its own or an ancestor's.  Null
+    // when they need to be looked up again.  A source stays valid while only
+    // its value changes, it is forgotten when a property's inheritance
+    // changes, or when the object is moved in the tree.  If an inheriting
+    // object has a source, so does its parent, which lets styleChanged() stop
+    // at objects that have none.
+    private ColorProperty colorSource;
+    private ColorProperty strokeColorSource;
+    private StrokeProperty strokeSource;
+
+    ColorProperty getColorSource() {
+        if (colorSource == null) {
+            ColorProperty colProp = properties.peek(COLOR);
+            // if the parent is null we can't inherit anything, so use the
+            // current color
+            colorSource = (colProp.isInherited() && parent != null)
+                ? parent.getColorSource() : colProp;
+        }
+        return colorSource;
+    }
+
+    ColorProperty getStrokeColorSource() {
+        if (strokeColorSource == null) {
+            ColorProperty stColProp = properties.peek(STROKE_COLOR);
+            strokeColorSource = (stColProp.isInherited() && parent != null)
+                ? parent.getStrokeColorSource() : stColProp;
+        }
+        return strokeColorSource;
+    }
+
+    StrokeProperty getStrokeSource() {
+        if (strokeSource == null) {
+            StrokeProperty stProp = properties.peek(STROKE);
+            strokeSource = (stProp.isInherited() && parent != null)
+                ? parent.getStrokeSource() : stProp;
+        }
+        return strokeSource;
+    }
+
+    /**
+     * Whether this object's own style property for the key (COLOR,
+     * STROKE_COLOR or STROKE) is inherited from its parent.
+     */
+    boolean inheritsStyle(PropertyKey<?> key) {
+        if (key == STROKE)
+            return properties.peek(STROKE).isInherited();
+        return ((ColorProperty)properties.peek(key)).isInherited();
+    }
+
+    // Called when one of this object's own style properties changed.  Only
+    // a change to whether it is inherited can change where the style comes
+    // from, a new value is read from the same source.
+    private void ownStyleChanged(PropertyKey<?> key, Property source, Property own) {
+        if (source == null)
+            return;
+        boolean ownIsSource = !inheritsStyle(key) || parent == null;
+        if ((source == own) != ownIsSource)
+            styleChanged(key);
+    }
+
+    /**
+     * Forget where the style for the key (COLOR, STROKE_COLOR or STROKE)
+     * comes from, here and in any descendants which inherit it.
+     *
+     * @return false if it was not known to begin with
+     */
+    protected boolean styleChanged(PropertyKey<?> key) {
+        boolean known;
+        if (key == COLOR) {
+            known = colorSource != null;
+            colorSource = null;
+        } else if (key == STROKE_COLOR) {
+            known = strokeColorSource != null;
+            strokeColorSource = null;
+        } else {
+            known = strokeSource != null;
+            strokeSource = null;
+        }
+        return known;
+    }
+
+    // Called when this object is attached to or detached from a parent.
+    void parentChanged() {
+        styleChanged(COLOR);
+        styleChanged(STROKE_COLOR);
+        styleChanged(STROKE);
+    }
+
+    /**
+     * Returns the absolute color of an Object, inheriting from the parent if 
+     * the ColorProperty has been configured as such.
+     */
+    public Color getColorAbsolute() {
+        Property.flushBatch();
+        return getColorSource().get();
     }
     
     /**
@@ -621,23 +1058,27 @@ public abstract class TextObject implements Locatable {
      * the ColorProperty has been configured as such.
      */
     public Color getStrokeColorAbsolute() {
-        
-        ColorProperty stColProp = getStrokeColor();
-        
-        if ( !stColProp.isInherited() ) {
-            return stColProp.get();
-        }
-        else {
-            TextObject parent;
-            if ( ( parent = getParent() ) != null ) {                
-                return parent.getStrokeColorAbsolute();
-            }
-            else {
-                // if the parent is null we can't inherit anything, so 
-                // so return the current stroke color
-                return stColProp.get();
-            }
-        }
+        Property.flushBatch();
+        return getStrokeColorSource().get();
+    }
+    
+    /**
+     * Returns the absolute color of an Object as a packed ARGB int, inheriting
+     * from the parent if the ColorProperty has been configured as such.
+     */
+    public int getColorAbsoluteARGB() {
+        Property.flushBatch();
+        return getColorSource().getARGB();
+    }
+
+    /**
+     * Returns the absolute stroke color of an Object as a packed ARGB int,
+     * inheriting from the parent if the ColorProperty has been configured as
+     * such.
+     */
+    public int getStrokeColorAbsoluteARGB() {
+        Property.flushBatch();
+        return getStrokeColorSource().getARGB();
     }
     
     /**
@@ -645,23 +1086,8 @@ public abstract class TextObject implements Locatable {
      * the StrokeProperty has been configured as such.
      */
     public BasicStroke getStrokeAbsolute() {
-        
-        StrokeProperty stProp = getStroke();
-        
-        if ( !stProp.isInherited() ) {
-            return stProp.get();
-        }
-        else {
-            TextObject parent;
-            if ( ( parent = getParent() ) != null ) {                
-                return parent.getStrokeAbsolute();
-            }
-            else {
-                // if the parent is null we can't inherit anything, so 
-                // so return the current stroke color
-                return stProp.get();
-            }
-        }
+        Property.flushBatch();
+        return getStrokeSource().get();
     }
     
     public abstract String toString();
@@ -34,7 +34,6 @@ import java.util.Map;
 import java.util.Vector;
 
 import net.nexttext.property.PVectorListProperty;
-import net.nexttext.property.PVectorProperty;
 import net.nexttext.property.Property;
 import net.nexttext.property.PropertyChangeListener;
 import net.nexttext.property.ColorProperty;
@@ -100,6 +99,10 @@ public class TextObjectGlyph extends TextObject {
     // Track glyph deformations to allow for faster rendering.
     private boolean deformed = false;
 
+    /** Key for the "Control Points" property of every glyph. */
+    public static final PropertyKey<PVectorListProperty> CONTROL_POINTS =
+        PropertyKey.get("Control Points", PVectorListProperty.class);
+
     /**
      * A flag to indicate if this glyph has been deformed.
      *
@@ -107,7 +110,10 @@ public class TextObjectGlyph extends TextObject {
      * the glyph.  True means that the "Control Points" property is needed to
      * define the shape of the glyph.  </p>
      */
-    public boolean isDeformed() { return deformed; }
+    public boolean isDeformed() {
+        Property.flushBatch();
+        return deformed;
+    }
     public void setDeformed(boolean df) { deformed = df; }
 
     /**
@@ -160,7 +166,7 @@ public class TextObjectGlyph extends TextObject {
 		this.size   = size;
 		font = Book.loadFontFromPFont(pfont);
 
-        properties.init("Control Points", new PVectorListProperty());
+        properties.init(CONTROL_POINTS, new PVectorListProperty());
         
         glyphChanged();
 
@@ -179,7 +185,7 @@ public class TextObjectGlyph extends TextObject {
 	 *  @param glyph	A glyph to copy
 	 */
 	public TextObjectGlyph(TextObjectGlyph glyph) {
-		this(glyph.toString(), glyph.getFont(), glyph.getSize(), glyph.properties.properties, glyph.getPosition().get());
+		this(glyph.toString(), glyph.getFont(), glyph.getSize(), glyph.properties.toMap(), glyph.getPosition().get());
 	}
 	
     /**
@@ -216,6 +222,14 @@ public class TextObjectGlyph extends TextObject {
 		this.glyph = glyph;
 
         glyphChanged();
+        if (parent != null) parent.textChanged();
+	}
+
+	/**
+	 * Whether this glyph is a single space, without comparing strings.
+	 */
+	public boolean isSpace() {
+		return glyph.length() == 1 && glyph.charAt(0) == ' ';
 	}
 	
 	/**
@@ -249,13 +263,14 @@ public class TextObjectGlyph extends TextObject {
      * Convenience accessor for the control points.
      */
     public PVectorListProperty getControlPoints() {
-        return (PVectorListProperty) getProperty("Control Points");
+        return properties.get(CONTROL_POINTS);
     }
     
     /**
      * Get the outline of the glyph.
      */
     public GeneralPath getOutline() {
+        Property.flushBatch();
     	//if the contours aren't set then the glyph must be using
     	//a bitmap only font
     	if (contours == null) {
@@ -277,18 +292,17 @@ public class TextObjectGlyph extends TextObject {
                 // get the list of vertices for this contour
                 int contour[] = (int[]) it.next();
 
-                PVector firstPoint = vertices.get(contour[0]);
                 // move the pen to the beginning of the contour
-                gp.moveTo((float) firstPoint.x, (float) firstPoint.y);
+                gp.moveTo(vertices.getX(contour[0]), vertices.getY(contour[0]));
                 
                 // generate all the quads forming the line
                 for (int i = 1; i < contour.length-1; i+=2) {
 
-                	PVector controlPoint = vertices.get(contour[i]);
-                	PVector anchorPoint = vertices.get(contour[i + 1]);
+                	int controlPoint = contour[i];
+                	int anchorPoint = contour[i + 1];
 
-                    gp.quadTo((float) controlPoint.x, (float) controlPoint.y,
-                    		  (float) anchorPoint.x, (float) anchorPoint.y);                   
+                    gp.quadTo(vertices.getX(controlPoint), vertices.getY(controlPoint),
+                    		  vertices.getX(anchorPoint), vertices.getY(anchorPoint));
                 }
                 // close the path
                 gp.closePath();
@@ -339,29 +353,37 @@ public class TextObjectGlyph extends TextObject {
     /**
      * Reset any internally cached information that becomes invalid because the
      * glyph has deformed.
+     *
+     * <p>The change events of the control points may be held back until a
+     * behaviour is done, so by the time this is called they may have been
+     * put back to their original values, as Reform does.  The glyph is only
+     * deformed if they are still changed.  </p>
      */
     protected void glyphDeformed() {
-        deformed = true;
+        deformed = !getControlPoints().isOriginal();
         outline = null;
         rendererCache = null;
         invalidateLocalBoundingPolygon();
     }
 
 	/**
-	 * This method uses the Java AWT Font methods to create a vector outline of 
-	 * the glyph.
+	 * Set the control points, contours and logical bounds from the glyph and
+	 * font.
+	 *
+	 * <p>Outlines are cached by font and glyph, and the control points of an
+	 * undeformed glyph are shared with every other glyph built from the same
+	 * outline.  The first deformation gives the glyph its own copy, see
+	 * {@link PVectorListProperty#share}.  </p>
 	 */
 	protected void buildControlPoints() {
-		// create a Vector3PropertyList object to store the vertices
 		PVectorListProperty vertices = getControlPoints();
 		
-		// clear previously stored vertices
-		vertices.clear();
-
 		//calculate outline only if we have the native font object
 		//if we don't, we are using a bitmap font, so calculate the bounds
 		//using the font metrics
 		if (font == null) {
+			// clear previously stored vertices
+			vertices.clear();
 			logicalBounds = new Rectangle2D.Float(
 									 0,
 									 -(size*pfont.ascent()),
@@ -371,8 +393,52 @@ public class TextObjectGlyph extends TextObject {
 			return;
 		}
 		
+		GlyphOutline go;
+		synchronized (outlineCache) {
+			Map<String, GlyphOutline> fontOutlines = outlineCache.get(font);
+			if (fontOutlines == null) {
+				fontOutlines = new HashMap<String, GlyphOutline>();
+				outlineCache.put(font, fontOutlines);
+			}
+			go = fontOutlines.get(glyph);
+			if (go == null) {
+				go = buildOutline();
+				fontOutlines.put(glyph, go);
+			}
+		}
+		
+		contours = go.contours;
+		logicalBounds = go.logicalBounds;
+		vertices.share(go.points);
+	}
+	
+	/**
+	 * The control points, contours and logical bounds for one glyph of one
+	 * font.  These are shared between glyphs, and must not be modified.
+	 */
+	private static class GlyphOutline {
+		float[] points;
+		Vector<int[]> contours;
+		Rectangle2D logicalBounds;
+	}
+	
+	// Outlines of all the glyphs built so far, by font and glyph.  Entries
+	// are never removed, so the cache grows with the number of distinct
+	// fonts used; a sketch that derives a new Font for every size change
+	// keeps one set of outlines per size.
+	private static Map<Font, Map<String, GlyphOutline>> outlineCache =
+		new HashMap<Font, Map<String, GlyphOutline>>();
+	
+	/**
+	 * This method uses the Java AWT Font methods to create a vector outline of 
+	 * the glyph.
+	 */
+	private GlyphOutline buildOutline() {
+		// a list to store the vertices
+		Vector<PVector> vertices = new Vector<PVector>();
+		
 		// create a Vector to store the list of contours
-		this.contours = new Vector();
+		Vector<int[]> contours = new Vector<int[]>();
 		
 		// vertice array index (used to associate more than one contour point
 		// with the same vertex)
@@ -401,7 +467,7 @@ public class TextObjectGlyph extends TextObject {
 		Shape outline = gv.getOutline();
 		
 		// store the glyph's logical bounds information
-		logicalBounds = gv.getLogicalBounds();
+		Rectangle2D logicalBounds = gv.getLogicalBounds();
 		
 	 	// no flattening done at the moment, just iterate through all the 
 	 	// segments of the outline.  For more details see Javadoc for
@@ -421,7 +487,7 @@ public class TextObjectGlyph extends TextObject {
 				 	// get the starting point for this contour	
 					PVector startingPoint = new PVector( (float)points[0], (float)points[1] );
 					// store the point in the list of vertices
-					vertices.add( new PVectorProperty( startingPoint) );
+					vertices.add( startingPoint );
 					// store this point in the current tmpContour and increment
 					// the vertices index
 					tmpContour.add( vertexIndex );
@@ -441,13 +507,13 @@ public class TextObjectGlyph extends TextObject {
 					PVector endPoint = new PVector( (float)points[0], (float)points[1] );
 					PVector midPoint = new PVector( (lastAnchor.x + endPoint.x)/2, 
 								 			  		(lastAnchor.y + endPoint.y)/2  );
-					vertices.add( new PVectorProperty( midPoint) );
+					vertices.add( midPoint );
 					tmpContour.add( vertexIndex );
 					vertexIndex++;
 					
 					// finally, we must add the endPoint twice to the contour
 					// to preserve sharp corners
-					vertices.add( new PVectorProperty( endPoint) );
+					vertices.add( endPoint );
 					tmpContour.add( vertexIndex );
 					vertexIndex++;
 				 	
@@ -463,12 +529,12 @@ public class TextObjectGlyph extends TextObject {
 					PVector anchorPoint = new PVector( (float)points[2], (float)points[3] );
 					
 					// Store control point.
-					vertices.add( new PVectorProperty( controlPoint) );
+					vertices.add( controlPoint );
 					tmpContour.add( vertexIndex );
 					vertexIndex++;
 
 					// Store anchor point.
-					vertices.add( new PVectorProperty( anchorPoint) );
+					vertices.add( anchorPoint );
 					tmpContour.add( vertexIndex );
 					vertexIndex++;
 				
@@ -503,6 +569,18 @@ public class TextObjectGlyph extends TextObject {
 	
 			pit.next();
 		} // end while	
+		
+		GlyphOutline go = new GlyphOutline();
+		go.points = new float[vertices.size() * 3];
+		for (int j = 0; j < vertices.size(); j++) {
+			PVector v = vertices.get(j);
+			go.points[j*3] = v.x;
+			go.points[j*3+1] = v.y;
+			go.points[j*3+2] = v.z;
+		}
+		go.contours = contours;
+		go.logicalBounds = logicalBounds;
+		return go;
 	 }
 	
     /**
@@ -516,6 +594,7 @@ public class TextObjectGlyph extends TextObject {
      * @see net.nexttext.TextObject#getLocalBoundingPolygon()   
      */
     public synchronized Polygon getLocalBoundingPolygon() {
+        Property.flushBatch();
 
         if (localBoundingPolygonValidToFrame >= getFrameCount()) {
             return localBoundingPolygon;
@@ -542,7 +621,7 @@ public class TextObjectGlyph extends TextObject {
     	else {    	
 	        // Spaces are calculated differently because they don't have control
 	        // points in the same way as other glyphs.
-	        if ( getGlyph().equals(" ") ) {        	
+	        if ( isSpace() ) {        	
 	            Rectangle2D sb = Book.loadFontFromPFont(pfont).getStringBounds(" ", frc);
 	            minX = (float)sb.getMinX();
 	            minY = (float)sb.getMinY();
@@ -552,12 +631,14 @@ public class TextObjectGlyph extends TextObject {
 	        } else {
 	        	PVectorListProperty vertices = getControlPoints();
 	
-	            for ( Iterator<PVectorProperty> i = vertices.iterator(); i.hasNext(); ) {
-	            	PVectorProperty vertex = i.next();
-	                minX = Math.min(vertex.getX(), minX);
-	                minY = Math.min(vertex.getY(), minY);
-	                maxX = Math.max(vertex.getX(), maxX);
-	                maxY = Math.max(vertex.getY(), maxY);
+	            // Read the points by index, so shared points aren't copied.
+	            for ( int i = 0; i < vertices.size(); i++ ) {
+	                float x = vertices.getX(i);
+	                float y = vertices.getY(i);
+	                minX = Math.min(x, minX);
+	                minY = Math.min(y, minY);
+	                maxX = Math.max(x, maxX);
+	                maxY = Math.max(y, maxY);
 	            }
 	        }
     	}
@@ -78,7 +78,7 @@ public class TextObjectGroup extends TextObject {
     public int getNumChildren() { return numChildren; }
     
     /** Get whether the group is empty or not. */
-    public boolean isEmpty() { return ((numChildren == 0) || toString().compareTo("") == 0); }
+    public boolean isEmpty() { return ((numChildren == 0) || getString().length() == 0); }
 
     /**
      * Attach a child to the end of the list of children.
@@ -106,6 +106,7 @@ public class TextObjectGroup extends TextObject {
         // Update the new child, and find its new siblings.
         newChild.parent = this;
         newChild.globalCoordChanged();
+        newChild.parentChanged();
         newChild.setBook(this.book);
         if (location == numChildren + 1) {
             newChild.leftSibling = rightMostChild;
@@ -132,6 +133,7 @@ public class TextObjectGroup extends TextObject {
 
         // Update the parent
         invalidateLocalBoundingPolygon();
+        textChanged();
         if (location == 1)
             leftMostChild = newChild;
         if (location == numChildren + 1)
@@ -166,12 +168,25 @@ public class TextObjectGroup extends TextObject {
         while (child != null) {
             // If the child TextObject does not inherit its colour from a parent, 
             // we skip it because it has its own colour properties.
-            if (((ColorProperty)child.getProperty(colPropName)).isInherited())
+            if (child.peekProperty(colPropName == "StrokeColor" ? STROKE_COLOR : COLOR).isInherited())
                 child.colourFlagChanged(newColProp);
             child = child.getRightSibling();
         }
     }
     
+    /**
+     * Forget the style source of the children which inherit it as well.
+     */
+    protected boolean styleChanged(PropertyKey<?> key) {
+        if (!super.styleChanged(key))
+            return false;
+        for (TextObject child = leftMostChild; child != null; child = child.rightSibling) {
+            if (child.inheritsStyle(key))
+                child.styleChanged(key);
+        }
+        return true;
+    }
+    
     /**
      * Override setBook() to propagate the new book to all its descendants.
      */
@@ -214,20 +229,37 @@ public class TextObjectGroup extends TextObject {
         return height;
     }
     
+    // The text of the group, built from its children's text when needed.
+    // If a group has its text, so do all the groups below it, so
+    // textChanged() can stop at the first ancestor which doesn't.
+    private String text = null;
+
      /**
       * Returns the string representation of a group
       */
      public String getString() {
      	
-     	String s = new String();
-     	
-     	// get a glyph iterator
-     	TextObjectGlyphIterator i = this.glyphIterator();
-     	while ( i.hasNext() ) {
-     		s += i.next().getGlyph();	
-     	}
+        if (text == null) {
+            StringBuilder s = new StringBuilder();
+            for (TextObject child = leftMostChild; child != null; child = child.rightSibling) {
+                if (child instanceof TextObjectGroup)
+                    s.append(((TextObjectGroup) child).getString());
+                else
+                    s.append(((TextObjectGlyph) child).getGlyph());
+            }
+            text = s.toString();
+        }
+     	return text;
+    }
 
-     	return s;
+    /**
+     * Forget the text of this group and its ancestors, because a glyph was
+     * attached, detached or changed somewhere below it.
+     */
+    void textChanged() {
+        for (TextObjectGroup g = this; g != null && g.text != null; g = g.parent) {
+            g.text = null;
+        }
     }
 
     // When the global coords change the global BPs and Coordinate Systems of
@@ -256,6 +288,7 @@ public class TextObjectGroup extends TextObject {
      * @see net.nexttext.TextObject#getLocalBoundingPolygon()    
      */
     public synchronized Polygon getLocalBoundingPolygon() {
+        Property.flushBatch();
 
         if (localBoundingPolygonValidToFrame >= getFrameCount()) {
             return localBoundingPolygon;
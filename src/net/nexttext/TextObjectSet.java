@@ -0,0 +1,205 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext;
+
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.nexttext.behaviour.AbstractBehaviour;
+
+/**
+ * The set of TextObjects that a behaviour acts on.
+ *
+ * <p>The objects are kept in a dense array, and each object remembers its
+ * slot in the set of each behaviour it belongs to.  Adding and removing an
+ * object are constant time without any hashing, and iterating is a loop over
+ * the array using size() and get(), which is how Behaviour.behaveAll() does
+ * it.  An object is removed by moving the last object into its slot, so the
+ * order of the objects changes as objects are removed.  </p>
+ *
+ * <p>Since the slots are stored in the TextObjects, a TextObject can only be
+ * in one set for each behaviour.  The set is not synchronized, the behaviour
+ * which owns it is expected to do that.  </p>
+ */
+/* $Id$ */
+public class TextObjectSet extends AbstractSet<TextObject> {
+
+    private final AbstractBehaviour owner;
+
+    private TextObject[] elements = new TextObject[8];
+    private int size = 0;
+
+    // Changes to the set, to detect modification during iteration.
+    private int modCount = 0;
+
+    /**
+     * Create an empty set for the given behaviour.
+     */
+    public TextObjectSet(AbstractBehaviour owner) {
+        this.owner = owner;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the object in slot i, which must be less than size().
+     */
+    public TextObject get(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Slot " + i + " of " + size);
+        }
+        return elements[i];
+    }
+
+    /**
+     * Copy the objects into the start of dest, in slot order.  A larger array
+     * is allocated if dest is too small.
+     *
+     * @return the array the objects were copied into
+     */
+    public TextObject[] copyInto(TextObject[] dest) {
+        if (dest.length < size) {
+            dest = new TextObject[elements.length];
+        }
+        System.arraycopy(elements, 0, dest, 0, size);
+        return dest;
+    }
+
+    /**
+     * Copy the n objects starting at slot from into the start of dest.  A
+     * larger array is allocated if dest is too small.
+     *
+     * @return the array the objects were copied into
+     */
+    public TextObject[] copyInto(int from, int n, TextObject[] dest) {
+        if (from + n > size) {
+            throw new IndexOutOfBoundsException("Slots " + from + " to " +
+                                                (from + n) + " of " + size);
+        }
+        if (dest.length < n) {
+            dest = new TextObject[n];
+        }
+        System.arraycopy(elements, from, dest, 0, n);
+        return dest;
+    }
+
+    public boolean contains(Object o) {
+        return (o instanceof TextObject) &&
+            ((TextObject) o).getBehaviourSlot(owner) >= 0;
+    }
+
+    public boolean add(TextObject to) {
+        if (to.getBehaviourSlot(owner) >= 0) {
+            return false;
+        }
+        if (size == elements.length) {
+            TextObject[] grown = new TextObject[size * 2];
+            System.arraycopy(elements, 0, grown, 0, size);
+            elements = grown;
+        }
+        elements[size] = to;
+        to.behaviourAdded(owner, size);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    public boolean remove(Object o) {
+        if (!(o instanceof TextObject)) {
+            return false;
+        }
+        int slot = ((TextObject) o).getBehaviourSlot(owner);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    /**
+     * Remove the object in slot i, moving the last object into that slot.
+     *
+     * @return the removed object
+     */
+    public TextObject removeAt(int i) {
+        TextObject to = get(i);
+        to.behaviourRemoved(owner);
+        size--;
+        if (i != size) {
+            TextObject last = elements[size];
+            elements[i] = last;
+            last.setBehaviourSlot(owner, i);
+        }
+        elements[size] = null;
+        modCount++;
+        return to;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            elements[i].behaviourRemoved(owner);
+            elements[i] = null;
+        }
+        size = 0;
+        modCount++;
+    }
+
+    public Iterator<TextObject> iterator() {
+        return new Iterator<TextObject>() {
+            int next = 0;
+            int last = -1;
+            int expectedModCount = modCount;
+
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            public TextObject next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return elements[last];
+            }
+
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                // The last object moves into the removed slot, and hasn't
+                // been returned yet.
+                removeAt(last);
+                next = last;
+                last = -1;
+                expectedModCount = modCount;
+            }
+        };
+    }
+}
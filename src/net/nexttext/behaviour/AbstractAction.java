@@ -19,11 +19,19 @@
 
 package net.nexttext.behaviour;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import net.nexttext.Book;
+import net.nexttext.PropertyKey;
 import net.nexttext.PropertySet;
+import net.nexttext.SimulationClock;
 import net.nexttext.TextObject;
 import net.nexttext.property.*;
 
@@ -46,14 +54,26 @@ import net.nexttext.property.*;
  * <li>Default implementations of the Action methods, which subclasses may wish
  * to override.  </li>
  *
- * <li>A protected map from TextObjects to action-specific data.  This is used by
- * subclasses to persist state information across frames about TextObjects
- * currently being processed.  The Action.complete() method will remove state
- * information from this map, for the relevant TextObject.  </li>
+ * <li>Per object state, kept on the TextObjects themselves under this
+ * action's id.  This is used by subclasses to persist state information across
+ * frames about TextObjects currently being processed.  The Action.complete()
+ * method will drop the state for the relevant TextObject.  </li></ul>
  */
 /* $Id$ */
 public abstract class AbstractAction implements Action {
         
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    // Counts changes to the structure of any tree of actions, so that what's
+    // worked out from a tree can be kept until it changes.
+    private static final AtomicInteger treeVersion = new AtomicInteger();
+
+    private final int id = newId();
+
+    // Whether this class returns its results from behaveBits(), rather than
+    // overriding behave() as actions written before packed results did.
+    private final boolean packsResults =
+        overrides(AbstractAction.class, "behaveBits", TextObject.class);
     private String displayName = "";
     protected PropertySet properties = new PropertySet();
     
@@ -100,7 +120,7 @@ public abstract class AbstractAction implements Action {
      */
     protected PVectorProperty getPosition(TextObject to) {
         // we assume Position exists on to since it's a core property
-        return (PVectorProperty)to.getProperty("Position");
+        return to.getProperty(TextObject.POSITION);
     }
     
     /**
@@ -108,27 +128,140 @@ public abstract class AbstractAction implements Action {
      */
     protected NumberProperty getRotation(TextObject to) {
         // we assume Rotation exists on to since it's a core property
-        return (NumberProperty) to.getProperty("Rotation");
+        return to.getProperty(TextObject.ROTATION);
     }
     
     /**
      * Returns a TextObject's Color property.       
      */
     protected ColorProperty getColor(TextObject to) {
-        return (ColorProperty)to.getProperty("Color");
+        return to.getProperty(TextObject.COLOR);
+    }
+
+    /**
+     * Returns the clock of the Book a TextObject is in, from which the length
+     * of the current step can be found, or null if it isn't in a Book.
+     */
+    protected SimulationClock getClock(TextObject to) {
+        Book book = to.getBook();
+        return (book == null) ? null : book.getClock();
+    }
+
+    /**
+     * Returns the time to measure against for a TextObject, in nanoseconds.
+     *
+     * <p>This is the simulated time of its Book's clock, which is read once
+     * per step, or System.nanoTime() if it isn't in a Book.  </p>
+     */
+    protected long getTimeNanos(TextObject to) {
+        Book book = to.getBook();
+        return (book == null) ? System.nanoTime() : book.getClock().getTimeNanos();
+    }
+
+    // For objects which aren't in a book, and so have no random source.
+    private static final ThreadLocal<Random> unseeded = new ThreadLocal<Random>() {
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    /**
+     * Returns a random number from 0 up to but not including 1.
+     *
+     * <p>The number comes from the RandomSource of the object's Book, keyed
+     * by the object, the step, this action and <code>n</code>, so an action
+     * wanting several numbers for an object in one step should number them.
+     * With the same seed the same numbers come out in every run, however the
+     * objects are split between threads.  Objects which aren't in a Book get
+     * numbers which aren't repeatable.  </p>
+     */
+    protected float random(TextObject to, int n) {
+        Book book = to.getBook();
+        if (book == null) {
+            return unseeded.get().nextFloat();
+        }
+        return book.getRandom().nextFloat(to.getSerial(),
+                book.getClock().getSteps(), id, n);
     }
     
 	////////////////////////////////////////////////////////////////////////////
     // TextObject Data Store
 
+    /**
+     * The id which identifies this action's state on TextObjects.  Ids are
+     * unique among all the actions created in the program.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Note that actions have been added to or removed from a tree, so that
+     * anything worked out from trees, such as their required properties,
+     * is worked out again.  Actions which hold other actions call this when
+     * they change, code which changes their lists directly should too.
+     */
+    public static void treeChanged() {
+        treeVersion.incrementAndGet();
+    }
+
+    /**
+     * The number of times {@link #treeChanged()} has been called.
+     */
+    public static int getTreeVersion() {
+        return treeVersion.get();
+    }
+
+    /**
+     * Get an id which no action or other owner of state has, for keeping
+     * {@link ActionState} on TextObjects.
+     */
+    public static int newId() {
+        return nextId.getAndIncrement();
+    }
+
+    /**
+     * Get the state this action keeps for a TextObject, or null if it doesn't
+     * have any yet.
+     */
+    protected ActionState getState(TextObject to) {
+        return to.getActionState(id);
+    }
+
+    /**
+     * Get the state this action keeps for a TextObject, creating it with all
+     * slots zero if it doesn't have any yet.
+     */
+    protected ActionState state(TextObject to) {
+        ActionState state = to.getActionState(id);
+        if (state == null) {
+            state = new ActionState(id);
+            to.addActionState(state);
+        }
+        return state;
+    }
+
+    /**
+     * Forget the state this action keeps for a TextObject.
+     *
+     * @return the state which was dropped, or null if there was none.
+     */
+    protected ActionState clearState(TextObject to) {
+        return to.removeActionState(id);
+    }
+
     /**
      * Map from TextObjects to action-specific data.
      *
-     * <p>Provided for subclasses to persist information about TextObjects
-     * between frames. A WeakHashMap is used to help prevent memory leaks;
-     * data on textObjects should not persist beyond the life of the textObject
-     * and should not prevent a textObject from being garbage collected. </p>
+     * <p>A WeakHashMap is used to help prevent memory leaks; data on
+     * textObjects should not persist beyond the life of the textObject and
+     * should not prevent a textObject from being garbage collected. </p>
+     *
+     * @deprecated Keep state with {@link #state} instead, which lives on the
+     * TextObject and doesn't hash or box.  This map is still cleared by
+     * complete() for subclasses which use it.
      */
+    @Deprecated
     protected Map<TextObject, Object> textObjectData = new WeakHashMap<TextObject, Object>();
 
     ////////////////////////////////////////////////////////////////////////////
@@ -137,17 +270,59 @@ public abstract class AbstractAction implements Action {
     /**
      * Default behave method for single objects.  
      * 
-     * <p>This method does nothing; it should be overriden by subclasses if 
-     * they wish to support actions on single objects. </p>
+     * <p>If the subclass overrides {@link #behaveBits(TextObject)}, its
+     * packed result is returned as an ActionResult.  Otherwise this method
+     * does nothing; it should be overriden by subclasses if they wish to
+     * support actions on single objects. </p>
      * 
-     * <p>Trying to call this method on an Action which doesn't override it
+     * <p>Trying to call this method on an Action which overrides neither
      * will throw an UnsupportedActionException. </p>
      * 
      * @throws UnsupportedActionException
      */
     public ActionResult behave(TextObject to) {
+        if (packsResults) return ActionResult.unpack(behaveBits(to));
         throw new UnsupportedActionException("This action doesn't support single objects");
     }
+
+    /**
+     * Performs the action on a TextObject, returning the result packed into
+     * an int as described in {@link ActionResult}.
+     *
+     * <p>This is what actions should override to support single objects, as
+     * it doesn't allocate a result each time it is called.  The default
+     * implementation packs the result of behave(), so that actions which
+     * override behave() instead still work.  </p>
+     *
+     * @throws UnsupportedActionException
+     */
+    public int behaveBits(TextObject to) {
+        return ActionResult.pack(behave(to));
+    }
+
+    /**
+     * Performs any Action on a TextObject, returning a packed result.
+     *
+     * <p>Control actions use this to call the actions they contain, so that
+     * actions which return packed results don't allocate.  </p>
+     */
+    public static int behaveBits(Action action, TextObject to) {
+        if (action instanceof AbstractAction)
+            return ((AbstractAction) action).behaveBits(to);
+        return ActionResult.pack(action.behave(to));
+    }
+
+    /**
+     * Whether this object's class overrides the given public method, which is
+     * first declared by base.
+     */
+    protected boolean overrides(Class<?> base, String name, Class<?>... params) {
+        try {
+            return getClass().getMethod(name, params).getDeclaringClass() != base;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
      
     /**
      * Default behave method for object pairs.
@@ -183,7 +358,9 @@ public abstract class AbstractAction implements Action {
     /**
      * Default implementation which removes state information for the object.
      */
+    @SuppressWarnings("deprecation")
     public void complete(TextObject to) {
+        to.removeActionState(id);
         textObjectData.remove(to);
     }
 
@@ -203,6 +380,74 @@ public abstract class AbstractAction implements Action {
     public Map<String, Property> getRequiredProperties() {
     	return new HashMap<String, Property>(0);
     }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Property access
+
+    /**
+     * The names of the TextObject properties this action reads, or null if it
+     * doesn't say.
+     *
+     * <p>This includes properties read through absolute values, which come
+     * from the object's ancestors, and those of other objects, such as a
+     * target.  Required properties don't need to be listed, they are assumed
+     * to be read.  Together with getWrittenProperties() this lets the Book run
+     * behaviours which touch different properties at the same time, see
+     * {@link BehaviourScheduler}.  An action which doesn't say is never run
+     * alongside another.  </p>
+     */
+    public Set<String> getReadProperties() {
+        return null;
+    }
+
+    /**
+     * The names of the TextObject properties this action changes, or null if
+     * it doesn't say.
+     *
+     * @see #getReadProperties()
+     */
+    public Set<String> getWrittenProperties() {
+        return null;
+    }
+
+    /**
+     * A set of property names, for use in declaring property access.
+     */
+    protected static Set<String> names(PropertyKey<?>... keys) {
+        Set<String> names = new HashSet<String>();
+        for (int i = 0; i < keys.length; i++) {
+            names.add(keys[i].getName());
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * The union of two declarations, which is null if either is.
+     */
+    protected static Set<String> union(Set<String> a, Set<String> b) {
+        if (a == null || b == null) return null;
+        Set<String> both = new HashSet<String>(a);
+        both.addAll(b);
+        return both;
+    }
+
+    /**
+     * The properties read by any action, null if it doesn't say.
+     */
+    public static Set<String> readsOf(Action action) {
+        if (action instanceof AbstractAction)
+            return ((AbstractAction) action).getReadProperties();
+        return null;
+    }
+
+    /**
+     * The properties written by any action, null if it doesn't say.
+     */
+    public static Set<String> writesOf(Action action) {
+        if (action instanceof AbstractAction)
+            return ((AbstractAction) action).getWrittenProperties();
+        return null;
+    }
     
     ///////////////////////////////////////////
     // Utility methods
@@ -19,10 +19,12 @@
 
 package net.nexttext.behaviour;
 
-import java.util.LinkedHashSet;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.Set;
 
 import net.nexttext.TextObject;
+import net.nexttext.TextObjectSet;
 
 /**
 * AbstractBehaviours act on a list of TextObjects, and are included in the
@@ -66,11 +68,42 @@ public abstract class AbstractBehaviour  {
 	 //////////////////////////////////////////////////////////////////////
 	 // TextObjects to act on.
 	
-	 // Objects are stored in a Set to guarantee uniqueness, and LinkedHash is
-	 // nice because it provides a consistent order.  In general performance is
-	 // not a major issue, because most accesses are iteration over the list.
-	 
-	 protected Set<TextObject> objects = new LinkedHashSet<TextObject>();
+	 // Objects are stored in a Set to guarantee uniqueness.  A TextObjectSet
+	 // keeps them in an array, so iterating over them is a plain loop, and
+	 // each object remembers its slot, so adding and removing don't hash.
+	 // Removing an object moves the last one into its slot, so the order is
+	 // not preserved.
+	 //
+	 // Subclasses see the objects as a plain Set, as they always have, and
+	 // may replace it.  A replaced set's contents are moved into a new
+	 // TextObjectSet the next time the behaviour needs one.
+
+	 private TextObjectSet objectSet = new TextObjectSet(this);
+
+	 protected Set<TextObject> objects = objectSet;
+
+	 /**
+	  * Get the objects to act on as a TextObjectSet, which can be looped over
+	  * by index.
+	  *
+	  * <p>If a subclass has replaced {@link #objects} with a Set of its own,
+	  * its contents are copied into a new TextObjectSet, which then replaces
+	  * it.  </p>
+	  */
+	 protected synchronized TextObjectSet getObjectSet() {
+	     if (objects != objectSet) {
+	         // The replacement may be a view of the old set, so take its
+	         // contents before letting go of the old one.
+	         TextObject[] keep = (objects == null) ? new TextObject[0] :
+	             objects.toArray(new TextObject[objects.size()]);
+	         objectSet.clear();
+	         TextObjectSet set = new TextObjectSet(this);
+	         for (TextObject to : keep) set.add(to);
+	         objectSet = set;
+	         objects = set;
+	     }
+	     return objectSet;
+	 }
 	 
 	 /**
 	  * Behave on every TextObject in the list.
@@ -106,7 +139,39 @@ public abstract class AbstractBehaviour  {
 	 public synchronized void removeObject(TextObject to) {
 	     objects.remove(to);
 	 }        
+
+	 /**
+	  * Stop this behaviour from acting on a number of TextObjects.
+	  *
+	  * <p>This is used by the Book to remove all the objects that are going
+	  * away in a frame at once.  Each object is passed to removeObject(), so
+	  * subclasses only need to override that.  </p>
+	  */
+	 public synchronized void removeObjects(Collection<TextObject> tos) {
+	     for (Iterator<TextObject> i = tos.iterator(); i.hasNext(); ) {
+	         removeObject(i.next());
+	     }
+	 }
 	 
+	 /**
+	  * The names of the TextObject properties this behaviour reads, or null
+	  * if it doesn't say.  Behaviours which don't say are never run at the
+	  * same time as others.
+	  *
+	  * @see AbstractAction#getReadProperties()
+	  */
+	 public Set<String> getReadProperties() {
+	     return null;
+	 }
+
+	 /**
+	  * The names of the TextObject properties this behaviour changes, or null
+	  * if it doesn't say.
+	  */
+	 public Set<String> getWrittenProperties() {
+	     return null;
+	 }
+
 	 public String toString() {
 	     return getDisplayName();
 	 }
@@ -49,8 +49,27 @@ import net.nexttext.property.Property;
 /* $Id$ */
 public interface Action {
     
-    /** Used to communicate results of Action.behave(). */
+    /**
+     * Used to communicate results of Action.behave().
+     *
+     * <p>The three fields can also be packed into the bits of an int, using
+     * {@link #pack} and the static methods below.  AbstractAction subclasses
+     * return their results that way from
+     * {@link AbstractAction#behaveBits(TextObject)}, so that no result objects
+     * are allocated while behaviours run.  </p>
+     */
     public class ActionResult {
+
+        /** The bit which is set in a packed result if complete is true. */
+        public static final int COMPLETE = 1;
+        /** The bit which is set in a packed result if canComplete is true. */
+        public static final int CAN_COMPLETE = 2;
+        /** The bit which is set in a packed result if event is true. */
+        public static final int EVENT = 4;
+
+        /** A packed result suitable for use in combine(int, int). */
+        public static final int COMBINE = COMPLETE;
+
         /** Indicate that the action has completed. */
         public boolean complete;
         /** Indicate if the Action can ever complete for this object. */
@@ -109,6 +128,71 @@ public interface Action {
                 complete = false;
             return this;
         }
+
+        /**
+         * Pack the three fields of a result into an int.
+         */
+        public static int pack(boolean complete, boolean canComplete,
+                               boolean event) {
+            return (complete ? COMPLETE : 0) |
+                   (canComplete ? CAN_COMPLETE : 0) |
+                   (event ? EVENT : 0);
+        }
+
+        /**
+         * Pack an ActionResult into an int.
+         */
+        public static int pack(ActionResult res) {
+            return pack(res.complete, res.canComplete, res.event);
+        }
+
+        /**
+         * Create an ActionResult from a packed one, for callers which still
+         * need the object.
+         */
+        public static ActionResult unpack(int res) {
+            return new ActionResult(isComplete(res), canComplete(res),
+                                    isEvent(res));
+        }
+
+        /** Whether complete is set in a packed result. */
+        public static boolean isComplete(int res) {
+            return (res & COMPLETE) != 0;
+        }
+
+        /** Whether canComplete is set in a packed result. */
+        public static boolean canComplete(int res) {
+            return (res & CAN_COMPLETE) != 0;
+        }
+
+        /** Whether event is set in a packed result. */
+        public static boolean isEvent(int res) {
+            return (res & EVENT) != 0;
+        }
+
+        /**
+         * Combine a packed result into another, using the same rules as
+         * combine(ActionResult).  Start with {@link #COMBINE}, and finish
+         * with endCombine(int).
+         *
+         * @return the combined result
+         */
+        public static int combine(int combined, int res) {
+            if ((res & (COMPLETE | CAN_COMPLETE)) == CAN_COMPLETE)
+                combined &= ~COMPLETE;
+            return combined | (res & (CAN_COMPLETE | EVENT));
+        }
+
+        /**
+         * Ends the combining of several packed results.
+         *
+         * @return the combined result
+         */
+        public static int endCombine(int combined) {
+            if ((combined & CAN_COMPLETE) == 0)
+                combined &= ~COMPLETE;
+            return combined;
+        }
     }
     
     /**
@@ -0,0 +1,105 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext.behaviour;
+
+/**
+ * The state an Action keeps for one TextObject between frames.
+ *
+ * <p>Each TextObject carries a small array of these, one for each action
+ * which is currently processing it, found by the action's id.  They are
+ * obtained through {@link AbstractAction#getState} and
+ * {@link AbstractAction#state}, and dropped when the action completes for the
+ * object.  The slots are plain fields so that reading and updating them every
+ * frame doesn't allocate.  </p>
+ *
+ * <p>What the slots mean is up to the action.  Counters usually live in
+ * <code>i</code>, time stamps in <code>l</code> and amounts in
+ * <code>f</code>.  The flags are a bit set for actions which need to remember
+ * something about each of their children, such as a Multiplexer.  </p>
+ */
+/* $Id$ */
+public final class ActionState {
+
+    final int owner;
+
+    public int i;
+    public long l;
+    public float f;
+
+    // For actions which need more room than the slots, such as a compiled
+    // tree of actions.  Left null by everything else.
+    public long[] registers;
+
+    private long flags;
+    private long[] moreFlags;
+
+    /**
+     * New state with all slots zero.  Actions get theirs through {@link
+     * AbstractAction#state}, other code which keeps state on TextObjects
+     * should take its owner from {@link AbstractAction#newId()}.
+     */
+    public ActionState(int owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * The id of the action this state belongs to.
+     */
+    public int getOwner() {
+        return owner;
+    }
+
+    /**
+     * Get flag number n, which is false until it is set.
+     */
+    public boolean getFlag(int n) {
+        if (n < 64) return (flags & (1L << n)) != 0;
+        int w = (n >> 6) - 1;
+        return moreFlags != null && w < moreFlags.length &&
+               (moreFlags[w] & (1L << n)) != 0;
+    }
+
+    /**
+     * Set or clear flag number n.
+     */
+    public void setFlag(int n, boolean value) {
+        if (n < 64) {
+            if (value) flags |= 1L << n; else flags &= ~(1L << n);
+            return;
+        }
+        int w = (n >> 6) - 1;
+        if (moreFlags == null || w >= moreFlags.length) {
+            if (!value) return;
+            long[] grown = new long[w + 1];
+            if (moreFlags != null)
+                System.arraycopy(moreFlags, 0, grown, 0, moreFlags.length);
+            moreFlags = grown;
+        }
+        if (value) moreFlags[w] |= 1L << n; else moreFlags[w] &= ~(1L << n);
+    }
+
+    /**
+     * Clear all the flags.
+     */
+    public void clearFlags() {
+        flags = 0;
+        moreFlags = null;
+    }
+}
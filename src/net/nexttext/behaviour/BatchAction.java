@@ -0,0 +1,57 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext.behaviour;
+
+import net.nexttext.TextObject;
+
+/**
+ * An Action which can process many TextObjects in one call.
+ *
+ * <p>When a Behaviour's action implements this interface, the Behaviour
+ * passes all of its objects to behaveBatch() once per frame, instead of
+ * calling behave() for each of them.  This lets simple actions read their own
+ * properties once and then run a tight loop over the objects.  Processing a
+ * batch must have the same effect as calling behave() on each object in
+ * turn.  </p>
+ */
+/* $Id$ */
+public interface BatchAction extends Action {
+
+    /**
+     * Receives the results of a batch.
+     */
+    public interface ResultSink {
+        /**
+         * Report the packed result of the action on objs[i], as described in
+         * {@link Action.ActionResult}.
+         */
+        public void result(int i, int res);
+    }
+
+    /**
+     * Performs the action on the first n objects of objs.
+     *
+     * <p>The packed result for each object is reported to the sink.  Results
+     * which have no bits set may be left out, so actions which never complete
+     * or signal events don't need to call the sink at all.  The action must
+     * not keep a reference to the array, which is reused.  </p>
+     */
+    public void behaveBatch(TextObject[] objs, int n, ResultSink sink);
+}
@@ -19,10 +19,20 @@
 
 package net.nexttext.behaviour;
 
-import java.util.Iterator;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import net.nexttext.PropertyTemplate;
 import net.nexttext.TextObject;
+import net.nexttext.TextObjectSet;
 import net.nexttext.property.Property;
 
 /**
@@ -33,11 +43,70 @@ import net.nexttext.property.Property;
  * 
  * <p>When the Action indicates that the processing of that object is complete
  * the object is removed from the Behaviour's set of TextObjects.  </p>
+ *
+ * <p>If the Action is an {@link ObjectLocalAction} and there are enough
+ * objects, they are split between the threads of a shared pool.  </p>
  */
 /* $Id$ */
 public class Behaviour extends AbstractBehaviour {
     
     protected Action action;
+
+    // A share of the objects, passed to the action in one go, along with the
+    // indices of those which it reported complete.  Batch actions are given
+    // one part, and object-local ones one for each thread.
+    private class Part implements Callable<Object>, BatchAction.ResultSink {
+        TextObject[] objs = new TextObject[8];
+        int n = 0;
+        int[] completed = new int[8];
+        int numCompleted = 0;
+
+        void fill(int from, int count) {
+            objs = getObjectSet().copyInto(from, count, objs);
+            n = count;
+            numCompleted = 0;
+        }
+
+        public Object call() {
+            if (action instanceof BatchAction) {
+                ((BatchAction) action).behaveBatch(objs, n, this);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    result(i, AbstractAction.behaveBits(action, objs[i]));
+                }
+            }
+            return null;
+        }
+
+        public void result(int i, int res) {
+            if (Action.ActionResult.isComplete(res)) {
+                if (numCompleted == completed.length) {
+                    int[] grown = new int[numCompleted * 2];
+                    System.arraycopy(completed, 0, grown, 0, numCompleted);
+                    completed = grown;
+                }
+                completed[numCompleted++] = i;
+            }
+        }
+
+        // Remove the objects which completed, and let go of them all so they
+        // aren't kept alive after they leave the behaviour.
+        void finish() {
+            for (int j = 0; j < numCompleted; j++) {
+                TextObject to = objs[completed[j]];
+                objects.remove(to);
+                action.complete(to);
+            }
+            Arrays.fill(objs, 0, n, null);
+            n = 0;
+            numCompleted = 0;
+        }
+    }
+
+    private Part[] parts = new Part[0];
+
+    private PropertyTemplate template = null;
+    private int templateVersion;
     
     /**
      * Creates a Behaviour which will perform the specified action.
@@ -49,23 +118,172 @@ public class Behaviour extends AbstractBehaviour {
     /**
      * Calls behave() on every object in its list.
      * 
-     * <p>Objects will be removed from the list if the Action completes.  </p>
+     * <p>Objects will be removed from the list if the Action completes.  If
+     * the Action is a {@link BatchAction}, all the objects are passed to it in
+     * one call.  If it is an {@link ObjectLocalAction}, the objects may be
+     * processed by several threads, and this method returns once they are all
+     * done.  </p>
      */
     public synchronized void behaveAll() {
-        for (Iterator<TextObject> i = objects.iterator(); i.hasNext(); ) {
-            TextObject to = i.next();
-            Action.ActionResult res = action.behave(to);
-            if (res.complete) {
-                i.remove();
+        TextObjectSet set = getObjectSet();
+        int n = set.size();
+        int tasks = 1;
+        if (action instanceof ObjectLocalAction) {
+            tasks = Math.min(getParallelism(), n / getParallelGrain());
+        }
+        if (tasks > 1) {
+            behaveParallel(n, tasks);
+            return;
+        }
+        if (action instanceof BatchAction) {
+            Part part = getParts(1)[0];
+            part.fill(0, n);
+            part.call();
+            part.finish();
+            return;
+        }
+        int i = 0;
+        while (i < set.size()) {
+            TextObject to = set.get(i);
+            int res = AbstractAction.behaveBits(action, to);
+            if (Action.ActionResult.isComplete(res)) {
+                set.remove(to);
                 action.complete(to); //In case the action forgot to call complete itself
             }
+            // When an object is removed the last one takes its slot, so only
+            // move on if it's still there.
+            if (i < set.size() && set.get(i) == to) {
+                i++;
+            }
         }
     }
-    
+
+    private Part[] getParts(int count) {
+        if (parts.length < count) {
+            Part[] grown = new Part[count];
+            System.arraycopy(parts, 0, grown, 0, parts.length);
+            for (int k = parts.length; k < count; k++) {
+                grown[k] = new Part();
+            }
+            parts = grown;
+        }
+        return parts;
+    }
+
+    private void behaveParallel(int n, int tasks) {
+        // The workers can't see change events held back on this thread, so
+        // deliver them now to bring the objects' caches up to date.
+        Property.flushBatch();
+
+        Part[] ps = getParts(tasks);
+        List<Callable<Object>> calls = new ArrayList<Callable<Object>>(tasks);
+        int from = 0;
+        for (int k = 0; k < tasks; k++) {
+            int count = (n - from) / (tasks - k);
+            ps[k].fill(from, count);
+            calls.add(ps[k]);
+            from += count;
+        }
+
+        List<Future<Object>> results;
+        try {
+            results = getPool().invokeAll(calls);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running " + action, e);
+        }
+
+        Throwable failure = null;
+        for (int k = 0; k < tasks; k++) {
+            try {
+                results.get(k).get();
+            } catch (ExecutionException e) {
+                if (failure == null) failure = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ps[k].finish();
+        }
+        if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if (failure instanceof Error) throw (Error) failure;
+        if (failure != null) throw new RuntimeException(failure);
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+    // Thread pool
+
+    private static int parallelism = Runtime.getRuntime().availableProcessors();
+    private static int parallelGrain = 256;
+    private static ExecutorService pool = null;
+
+    /**
+     * Set the number of threads used to run behaviours with object-local
+     * actions.  It defaults to the number of processors, and 1 runs every
+     * behaviour on the calling thread.
+     */
+    public static synchronized void setParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        if (threads != parallelism && pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        parallelism = threads;
+    }
+
+    public static synchronized int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Set the fewest objects each thread should be given, below which it
+     * isn't worth splitting up a behaviour.  The default is 256.
+     */
+    public static synchronized void setParallelGrain(int objects) {
+        parallelGrain = Math.max(1, objects);
+    }
+
+    public static synchronized int getParallelGrain() {
+        return parallelGrain;
+    }
+
+    private static synchronized ExecutorService getPool() {
+        if (pool == null) {
+            pool = newPool(parallelism, "NextText behaviour ");
+        }
+        return pool;
+    }
+
+    // A pool of threads named after prefix, which don't keep the sketch alive
+    // once it's finished.
+    static ExecutorService newPool(int threads, final String prefix) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            int count = 0;
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, prefix + (++count));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
     public synchronized void addObject( TextObject to ) {
         super.addObject(to);
-        Map<String, Property> properties = action.getRequiredProperties();
-        to.initProperties( properties );        
+        to.initProperties( getTemplate() );
+    }
+
+    /**
+     * The properties required by the action, worked out once and kept until
+     * a tree of actions changes, see {@link AbstractAction#treeChanged()}.
+     */
+    public synchronized PropertyTemplate getTemplate() {
+        int version = AbstractAction.getTreeVersion();
+        if (template == null || templateVersion != version) {
+            template = new PropertyTemplate(action.getRequiredProperties());
+            templateVersion = version;
+        }
+        return template;
     }
         
      /**
@@ -75,4 +293,20 @@ public class Behaviour extends AbstractBehaviour {
          action.complete(to);
          super.removeObject(to);
      }  
+
+    /**
+     * The properties read by the action, including those it requires.
+     */
+    public Set<String> getReadProperties() {
+        Set<String> reads = AbstractAction.readsOf(action);
+        if (reads == null) return null;
+        return AbstractAction.union(reads, getTemplate().getNames());
+    }
+
+    /**
+     * The properties written by the action.
+     */
+    public Set<String> getWrittenProperties() {
+        return AbstractAction.writesOf(action);
+    }
 }
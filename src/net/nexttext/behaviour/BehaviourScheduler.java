@@ -0,0 +1,225 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext.behaviour;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+
+import net.nexttext.property.Property;
+
+/**
+ * Runs a list of behaviours, running those which don't interfere with each
+ * other at the same time.
+ *
+ * <p>Two behaviours interfere if one of them writes a property which the
+ * other reads or writes, as declared by {@link
+ * AbstractBehaviour#getReadProperties()} and {@link
+ * AbstractBehaviour#getWrittenProperties()}.  Behaviours which don't declare
+ * their properties interfere with every other, as do behaviours sharing the
+ * same action.  Where two behaviours interfere the one earlier in the list is
+ * run first, so the result is the same as running the list in order.  </p>
+ *
+ * <p>The order is worked out as a graph whenever the list changes.  If the
+ * graph is a single chain, or there is only one thread (see {@link
+ * Behaviour#setParallelism}), the behaviours are simply run in order on the
+ * calling thread.  Each behaviour is run inside its own batch of property
+ * change events, see {@link Property#beginBatch()}.  </p>
+ */
+/* $Id$ */
+public class BehaviourScheduler {
+
+    // The behaviours the graph was built for, in order.
+    private AbstractBehaviour[] order = new AbstractBehaviour[0];
+    // For each behaviour, the later ones which must wait for it, and the
+    // number of earlier ones it must wait for.
+    private int[][] successors = new int[0][];
+    private int[] predecessors = new int[0];
+    // True if some behaviours can run at the same time.
+    private boolean concurrent = false;
+    // The version of the action trees the graph was built for, since adding
+    // an action to a tree can change what a behaviour reads and writes.
+    private int treeVersion = -1;
+
+    private int[] waiting = new int[0];
+
+    private static ExecutorService pool = null;
+    private static int poolThreads = 0;
+
+    /**
+     * Run the behaviours in the list.
+     */
+    public void run(List<AbstractBehaviour> behaviours) {
+        if (!builtFor(behaviours)) {
+            build(behaviours);
+        }
+        int threads = Behaviour.getParallelism();
+        if (!concurrent || threads == 1) {
+            for (int i = 0; i < order.length; i++) {
+                behave(order[i]);
+            }
+            return;
+        }
+        runGraph(getPool(threads));
+    }
+
+    /**
+     * Whether two behaviours can be run at the same time.
+     */
+    public static boolean independent(AbstractBehaviour a, AbstractBehaviour b) {
+        Set<String> aReads = a.getReadProperties();
+        Set<String> aWrites = a.getWrittenProperties();
+        Set<String> bReads = b.getReadProperties();
+        Set<String> bWrites = b.getWrittenProperties();
+        if (aReads == null || aWrites == null || bReads == null || bWrites == null)
+            return false;
+        if ((a instanceof Behaviour) && (b instanceof Behaviour) &&
+            ((Behaviour) a).action == ((Behaviour) b).action)
+            return false;
+        return Collections.disjoint(aWrites, bWrites) &&
+               Collections.disjoint(aWrites, bReads) &&
+               Collections.disjoint(aReads, bWrites);
+    }
+
+    private static void behave(AbstractBehaviour b) {
+        Property.beginBatch();
+        try {
+            b.behaveAll();
+        } finally {
+            Property.commitBatch();
+        }
+    }
+
+    private boolean builtFor(List<AbstractBehaviour> behaviours) {
+        if (AbstractAction.getTreeVersion() != treeVersion) return false;
+        if (behaviours.size() != order.length) return false;
+        int i = 0;
+        for (AbstractBehaviour b : behaviours) {
+            if (order[i++] != b) return false;
+        }
+        return true;
+    }
+
+    private void build(List<AbstractBehaviour> behaviours) {
+        // Read the version first, so that a change made while building
+        // causes another build.
+        treeVersion = AbstractAction.getTreeVersion();
+        int n = behaviours.size();
+        order = behaviours.toArray(new AbstractBehaviour[n]);
+        successors = new int[n][];
+        predecessors = new int[n];
+        waiting = new int[n];
+
+        // Each behaviour waits for every earlier one which it interferes
+        // with.  The depth is the length of the longest chain of waits ending
+        // at a behaviour, if each one is deeper than the last it's a chain.
+        List<List<Integer>> after = new ArrayList<List<Integer>>(n);
+        int[] depth = new int[n];
+        concurrent = false;
+        for (int j = 0; j < n; j++) {
+            after.add(new ArrayList<Integer>());
+            for (int i = 0; i < j; i++) {
+                if (!independent(order[i], order[j])) {
+                    after.get(i).add(j);
+                    predecessors[j]++;
+                    depth[j] = Math.max(depth[j], depth[i] + 1);
+                }
+            }
+            if (depth[j] != j) concurrent = true;
+        }
+        for (int i = 0; i < n; i++) {
+            List<Integer> s = after.get(i);
+            successors[i] = new int[s.size()];
+            for (int k = 0; k < s.size(); k++) {
+                successors[i][k] = s.get(k);
+            }
+        }
+    }
+
+    private void runGraph(ExecutorService executor) {
+        CompletionService<Integer> done =
+            new ExecutorCompletionService<Integer>(executor);
+        System.arraycopy(predecessors, 0, waiting, 0, order.length);
+
+        int running = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (waiting[i] == 0) {
+                done.submit(task(i));
+                running++;
+            }
+        }
+
+        // As each behaviour finishes, start those which were only waiting for
+        // it.  After a failure nothing new is started, but those already
+        // running are waited for.
+        Throwable failure = null;
+        while (running > 0) {
+            int i;
+            try {
+                i = done.take().get().intValue();
+            } catch (ExecutionException e) {
+                if (failure == null) failure = e.getCause();
+                running--;
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while running behaviours", e);
+            }
+            running--;
+            if (failure != null) continue;
+            int[] next = successors[i];
+            for (int k = 0; k < next.length; k++) {
+                if (--waiting[next[k]] == 0) {
+                    done.submit(task(next[k]));
+                    running++;
+                }
+            }
+        }
+        if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if (failure instanceof Error) throw (Error) failure;
+        if (failure != null) throw new RuntimeException(failure);
+    }
+
+    private Callable<Integer> task(final int i) {
+        return new Callable<Integer>() {
+            public Integer call() {
+                behave(order[i]);
+                return Integer.valueOf(i);
+            }
+        };
+    }
+
+    // Behaviours get a pool of their own, since a behaviour may itself wait
+    // for Behaviour's pool to process its objects.
+    private static synchronized ExecutorService getPool(int threads) {
+        if (pool == null || poolThreads != threads) {
+            if (pool != null) pool.shutdown();
+            pool = Behaviour.newPool(threads, "NextText scheduler ");
+            poolThreads = threads;
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,35 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext.behaviour;
+
+/**
+ * A marker for Actions which only touch the object they are called with.
+ *
+ * <p>An object-local action may read and change the properties and action
+ * state of the TextObject passed to behave(), and may read, but not change,
+ * its own properties and other objects.  It must be safe to call on different
+ * objects from several threads at once.  A Behaviour with such an action may
+ * split its objects between the threads of a pool, see
+ * {@link Behaviour#setParallelism}.  If the action is also a
+ * {@link BatchAction}, each thread is given a batch.  </p>
+ */
+/* $Id$ */
+public interface ObjectLocalAction extends Action {
+}
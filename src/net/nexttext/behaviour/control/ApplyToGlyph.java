@@ -20,6 +20,7 @@
 package net.nexttext.behaviour.control;
 
 import java.util.Map;
+import java.util.Set;
 
 import net.nexttext.TextObject;
 import net.nexttext.TextObjectGlyph;
@@ -63,23 +64,22 @@ public class ApplyToGlyph extends AbstractAction {
      * <p>The results of the action calls are combined using the method
      * described in Action.ActionResult.  </p>
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
         if (to instanceof TextObjectGlyph) {
-            return action.behave((TextObjectGlyph) to);
+            return behaveBits(action, to);
         } 
         else {
-            ActionResult res = new ActionResult();
+            int res = ActionResult.COMBINE;
             TextObjectGlyphIterator i = ((TextObjectGroup) to).glyphIterator();            
             while (i.hasNext()) {                
-                ActionResult tres = action.behave(i.next()); 
-                res.combine(tres);
+                res = ActionResult.combine(res, behaveBits(action, i.next()));
             }
             /*
              * see the ActionResult class for details on how
              * ActionResults are combined.
              */
-            res.endCombine();
-            if (res.complete){
+            res = ActionResult.endCombine(res);
+            if (ActionResult.isComplete(res)){
                 action.complete(to);
                 complete(to);
             }
@@ -104,4 +104,12 @@ public class ApplyToGlyph extends AbstractAction {
             }
         }
     }
+
+    public Set<String> getReadProperties() {
+        return readsOf(action);
+    }
+
+    public Set<String> getWrittenProperties() {
+        return writesOf(action);
+    }
 }
\ No newline at end of file
@@ -21,13 +21,16 @@ package net.nexttext.behaviour.control;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.AbstractAction;
 import net.nexttext.behaviour.Action;
+import net.nexttext.behaviour.ActionState;
 import net.nexttext.property.Property;
 
 /**
@@ -69,6 +72,7 @@ public class Chain extends AbstractAction {
      */
     public void add(Action action) {
         actions.add(action);
+        treeChanged();
     }
 
     /**
@@ -80,55 +84,51 @@ public class Chain extends AbstractAction {
      * incremented, and complete set if it was incremented past the end of the
      * chain.
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
 
-        // Get the index of the current action.
-        Integer currentActionIndexObj = (Integer) textObjectData.get(to);
-
-        // TextObjects that have not been processed start at the beginning of
-        // the chain.
-        if (currentActionIndexObj == null) {
-            currentActionIndexObj = new Integer(0);
-            textObjectData.put(to, currentActionIndexObj);
-        }
-
-        int currentActionIndex = currentActionIndexObj.intValue();
+        // Get the index of the current action.  TextObjects that have not
+        // been processed start at the beginning of the chain.
+        ActionState state = state(to);
+        int currentActionIndex = state.i;
 
         // If the index is too high, maybe actions is empty, or the list of
         // actions changed.
         if (currentActionIndex >= actions.size()) {
-            textObjectData.remove(to);
-            return new ActionResult(true, true, true);
+            clearState(to);
+            return ActionResult.pack(true, true, true);
         }
 
         // Perform the desired action
         Action currentAction = actions.get(currentActionIndex);
-        ActionResult res = currentAction.behave(to);
+        int res = behaveBits(currentAction, to);
 
         // Increment the current action if necessary
-        if (res.complete || (res.event && !res.canComplete)) {
+        if (ActionResult.isComplete(res) ||
+            (ActionResult.isEvent(res) && !ActionResult.canComplete(res))) {
             currentAction.complete(to);
             if (currentActionIndex == (actions.size() - 1)) {
-                // The chain is complete
+                // The chain is complete, and the last action has already
+                // been told so.
+                clearState(to);
                 complete(to);
-                return new ActionResult(true, true, true);
+                return ActionResult.pack(true, true, true);
             } else {
-                textObjectData.put(to, new Integer(currentActionIndex + 1));
-                return new ActionResult(false, true, true);
+                state.i = currentActionIndex + 1;
+                return ActionResult.pack(false, true, true);
             }
         }
 
-        return new ActionResult(false, true, false);
+        return ActionResult.pack(false, true, false);
     }
 
     /**
      * The chain has ended for this TextObject, forget internal state.
      */
     public void complete(TextObject to) {
-    	super.complete(to);
-        Integer indexObj = (Integer) textObjectData.remove(to);
-        if (indexObj != null) {
-            Action currentAction = actions.get(indexObj.intValue());
+        ActionState state = getState(to);
+        super.complete(to);
+        if (state != null && state.i < actions.size()) {
+            Action currentAction = actions.get(state.i);
             currentAction.complete(to);
         }
     }
@@ -144,4 +144,26 @@ public class Chain extends AbstractAction {
         }
         return rP;
     }
+
+    /**
+     * The properties read by any of the actions.
+     */
+    public Set<String> getReadProperties() {
+        Set<String> reads = new HashSet<String>();
+        for (Iterator<Action> i = actions.iterator(); i.hasNext(); ) {
+            reads = union(reads, readsOf(i.next()));
+        }
+        return reads;
+    }
+
+    /**
+     * The properties written by any of the actions.
+     */
+    public Set<String> getWrittenProperties() {
+        Set<String> writes = new HashSet<String>();
+        for (Iterator<Action> i = actions.iterator(); i.hasNext(); ) {
+            writes = union(writes, writesOf(i.next()));
+        }
+        return writes;
+    }
 }
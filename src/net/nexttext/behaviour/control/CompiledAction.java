@@ -0,0 +1,425 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext.behaviour.control;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.nexttext.TextObject;
+import net.nexttext.behaviour.AbstractAction;
+import net.nexttext.behaviour.Action;
+import net.nexttext.behaviour.ActionState;
+import net.nexttext.property.NumberProperty;
+import net.nexttext.property.Property;
+
+/**
+ * A tree of control actions flattened into a table, which runs with the same
+ * results as the tree but much less work for each object.
+ *
+ * <p>Each Chain, Multiplexer, Repeat, Condition, Timer and Delay in the tree
+ * would otherwise look up its own state on every object on every frame.  In a
+ * CompiledAction they become entries in a table, and the state of all of them
+ * for an object is kept in one array of registers, found with a single
+ * lookup.  A Chain's register is its program counter, a Repeat's its count,
+ * and so on.  Any other action in the tree, including subclasses of the
+ * control actions which change how they behave, is called as it is.  </p>
+ *
+ * <p>The tree is read when it is compiled, so actions added to a Chain or
+ * Multiplexer afterwards are not seen, and the control actions in it should
+ * not also be used on their own.  Their properties, such as a Repeat's
+ * repetitions, are still read on every frame.  </p>
+ */
+/* $Id$ */
+public class CompiledAction extends AbstractAction {
+
+    private static final int LEAF = 0;
+    private static final int CHAIN = 1;
+    private static final int MULTIPLEXER = 2;
+    private static final int REPEAT = 3;
+    private static final int CONDITION = 4;
+    private static final int TIMER = 5;
+    private static final int DELAY = 6;
+
+    private final Action root;
+
+    // The table, one entry for each action in the tree.  An action which
+    // appears more than once has one entry, and so shares its state, as it
+    // would in the tree.
+    private int[] op;
+    private Action[] action;
+    private int[] reg;      // the first of the entry's registers
+    private int[] regCount;
+    private int[] firstChild;
+    private int[] childCount;
+    private int[] children;
+    private NumberProperty[] param;
+    private int registers;
+
+    /**
+     * Compile an action, if it is a tree with control actions in it.
+     *
+     * @return the compiled action, or the action itself if there is nothing
+     * to compile.
+     */
+    public static Action compile(Action action) {
+        if (kind(action) == LEAF) return action;
+        return new CompiledAction(action);
+    }
+
+    /**
+     * Compile the tree below the given action.
+     */
+    public CompiledAction(Action root) {
+        this.root = root;
+        List<Action> entries = new ArrayList<Action>();
+        Map<Action, Integer> index = new IdentityHashMap<Action, Integer>();
+        number(root, entries, index);
+
+        int n = entries.size();
+        op = new int[n];
+        action = entries.toArray(new Action[n]);
+        reg = new int[n];
+        regCount = new int[n];
+        firstChild = new int[n];
+        childCount = new int[n];
+        param = new NumberProperty[n];
+        List<Integer> kids = new ArrayList<Integer>();
+
+        for (int e = 0; e < n; e++) {
+            Action a = action[e];
+            op[e] = kind(a);
+            List<Action> below = childrenOf(a);
+            firstChild[e] = kids.size();
+            childCount[e] = below.size();
+            for (Action c : below) {
+                kids.add(index.get(c));
+            }
+
+            // Every entry except a leaf has a register saying whether it has
+            // state for the object, followed by the state itself.
+            reg[e] = registers;
+            switch (op[e]) {
+            case LEAF:
+                regCount[e] = 0;
+                break;
+            case MULTIPLEXER:
+                regCount[e] = 1 + (below.size() + 63) / 64;
+                break;
+            case CONDITION:
+                regCount[e] = 1;
+                break;
+            default:
+                regCount[e] = 2;
+            }
+            registers += regCount[e];
+
+            if (op[e] == REPEAT) {
+                param[e] = (NumberProperty) ((Repeat) a).properties().get("Repetitions");
+            } else if (op[e] == TIMER || op[e] == DELAY) {
+                param[e] = (NumberProperty) ((AbstractAction) a).properties().get("Duration");
+            }
+        }
+
+        children = new int[kids.size()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = kids.get(i);
+        }
+    }
+
+    /**
+     * The tree this was compiled from.
+     */
+    public Action getRoot() {
+        return root;
+    }
+
+    // Give each action in the tree an entry, parents before children.
+    private static void number(Action a, List<Action> entries, Map<Action, Integer> index) {
+        if (index.containsKey(a)) return;
+        index.put(a, entries.size());
+        entries.add(a);
+        for (Action c : childrenOf(a)) {
+            number(c, entries, index);
+        }
+    }
+
+    private static List<Action> childrenOf(Action a) {
+        List<Action> list = new ArrayList<Action>();
+        switch (kind(a)) {
+        case CHAIN:
+            list.addAll(((Chain) a).actions);
+            break;
+        case MULTIPLEXER:
+            list.addAll(((Multiplexer) a).actions);
+            break;
+        case REPEAT:
+            list.add(((Repeat) a).action);
+            break;
+        case CONDITION:
+            list.add(((Condition) a).trueAction);
+            list.add(((Condition) a).falseAction);
+            break;
+        case TIMER:
+            list.add(((Timer) a).action);
+            break;
+        case DELAY:
+            list.add(((Delay) a).action);
+            break;
+        }
+        return list;
+    }
+
+    // Only the control actions themselves are compiled, not subclasses which
+    // might change what they do.  Conditions are compiled as long as they
+    // only supply the condition.
+    private static int kind(Action a) {
+        Class<?> c = a.getClass();
+        if (c == Chain.class) return CHAIN;
+        if (c == Multiplexer.class) return MULTIPLEXER;
+        if (c == Repeat.class) return REPEAT;
+        if (c == Timer.class) return TIMER;
+        if (c == Delay.class) return DELAY;
+        if (a instanceof Condition &&
+            !declaredBelow(c, Condition.class, "behaveBits") &&
+            !declaredBelow(c, Condition.class, "behave") &&
+            !declaredBelow(c, Condition.class, "complete")) {
+            return CONDITION;
+        }
+        return LEAF;
+    }
+
+    private static boolean declaredBelow(Class<?> c, Class<?> base, String name) {
+        for (; c != base; c = c.getSuperclass()) {
+            for (Method m : c.getDeclaredMethods()) {
+                if (m.getName().equals(name)) return true;
+            }
+        }
+        return false;
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+    // Running the table
+
+    public int behaveBits(TextObject to) {
+        ActionState state = state(to);
+        if (state.registers == null) {
+            state.registers = new long[registers];
+        }
+        return run(0, to, state.registers);
+    }
+
+    /**
+     * Tell the actions in the tree, as completing the tree would.
+     */
+    public void complete(TextObject to) {
+        ActionState state = getState(to);
+        long[] r = (state == null || state.registers == null) ?
+            new long[registers] : state.registers;
+        end(0, to, r);
+        super.complete(to);
+    }
+
+    // Each case does what the behaveBits() of the action does, with the
+    // action's state in the registers.
+    private int run(int e, TextObject to, long[] r) {
+        int k = reg[e];
+        int first = firstChild[e];
+        int m = childCount[e];
+        switch (op[e]) {
+
+        case CHAIN: {
+            r[k] = 1;
+            int current = (int) r[k + 1];
+            if (current >= m) {
+                clear(e, r);
+                return ActionResult.pack(true, true, true);
+            }
+            int res = run(children[first + current], to, r);
+            if (ActionResult.isComplete(res) ||
+                (ActionResult.isEvent(res) && !ActionResult.canComplete(res))) {
+                end(children[first + current], to, r);
+                if (current == m - 1) {
+                    clear(e, r);
+                    return ActionResult.pack(true, true, true);
+                } else {
+                    r[k + 1] = current + 1;
+                    return ActionResult.pack(false, true, true);
+                }
+            }
+            return ActionResult.pack(false, true, false);
+        }
+
+        case MULTIPLEXER: {
+            int res = ActionResult.COMBINE;
+            r[k] = 1;
+            for (int i = 0; i < m; i++) {
+                int word = k + 1 + (i >> 6);
+                long bit = 1L << (i & 63);
+                int tres;
+                if ((r[word] & bit) != 0) {
+                    tres = ActionResult.pack(true, true, false);
+                } else {
+                    tres = run(children[first + i], to, r);
+                }
+                if (ActionResult.isComplete(tres)) {
+                    r[word] |= bit;
+                }
+                res = ActionResult.combine(res, tres);
+            }
+            res = ActionResult.endCombine(res);
+            if (ActionResult.isComplete(res)) {
+                end(e, to, r);
+            }
+            return res;
+        }
+
+        case REPEAT: {
+            long rep = param[e].getLong();
+            int tres = run(children[first], to, r);
+            boolean event = ActionResult.isEvent(tres);
+            if (rep > 0) {
+                r[k] = 1;
+                r[k + 1]++;
+                if (r[k + 1] >= rep) {
+                    clear(e, r);
+                    return ActionResult.pack(true, true, event);
+                } else {
+                    return ActionResult.pack(false, true, event);
+                }
+            }
+            return ActionResult.pack(false, false, event);
+        }
+
+        case CONDITION:
+            if (((Condition) action[e]).test(to)) {
+                return run(children[first], to, r);
+            } else {
+                return run(children[first + 1], to, r);
+            }
+
+        case TIMER: {
+            long now = getTimeNanos(to);
+            if (r[k] == 0) {
+                r[k] = 1;
+                r[k + 1] = now;
+            }
+            long duration = param[e].getLong() * 1000000L;
+            if (now - r[k + 1] >= duration) {
+                end(e, to, r);
+                return ActionResult.pack(true, true, true);
+            }
+            return run(children[first], to, r) | ActionResult.CAN_COMPLETE;
+        }
+
+        case DELAY: {
+            long now = getTimeNanos(to);
+            if (r[k] == 0) {
+                r[k] = 1;
+                r[k + 1] = now;
+            }
+            long duration = param[e].getLong() * 1000000L;
+            if (now - r[k + 1] >= duration) {
+                int res = run(children[first], to, r);
+                if (ActionResult.isComplete(res)) {
+                    end(e, to, r);
+                }
+                return res;
+            }
+            return ActionResult.pack(false, true, false);
+        }
+
+        default:
+            return behaveBits(action[e], to);
+        }
+    }
+
+    // Each case does what the complete() of the action does.
+    private void end(int e, TextObject to, long[] r) {
+        int k = reg[e];
+        int first = firstChild[e];
+        int m = childCount[e];
+        switch (op[e]) {
+
+        case CHAIN: {
+            boolean had = r[k] != 0;
+            long current = r[k + 1];
+            clear(e, r);
+            if (had && current < m) {
+                end(children[first + (int) current], to, r);
+            }
+            break;
+        }
+
+        case CONDITION:
+            // the condition might keep state of its own
+            to.removeActionState(((Condition) action[e]).getId());
+            ((Condition) action[e]).forgetMemo(to);
+            endChildren(e, to, r);
+            break;
+
+        case MULTIPLEXER:
+        case TIMER:
+            endChildren(e, to, r);
+            break;
+
+        case REPEAT:
+        case DELAY:
+            clear(e, r);
+            break;
+
+        default:
+            action[e].complete(to);
+        }
+    }
+
+    private void endChildren(int e, TextObject to, long[] r) {
+        clear(e, r);
+        int first = firstChild[e];
+        for (int i = 0; i < childCount[e]; i++) {
+            end(children[first + i], to, r);
+        }
+    }
+
+    private void clear(int e, long[] r) {
+        int k = reg[e];
+        for (int i = 0; i < regCount[e]; i++) {
+            r[k + i] = 0;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+    // Declarations, which are those of the tree
+
+    public Map<String, Property> getRequiredProperties() {
+        return root.getRequiredProperties();
+    }
+
+    public Set<String> getReadProperties() {
+        return readsOf(root);
+    }
+
+    public Set<String> getWrittenProperties() {
+        return writesOf(root);
+    }
+}
@@ -22,9 +22,11 @@ package net.nexttext.behaviour.control;
 import java.util.HashMap;
 import java.util.Map;
 
+import net.nexttext.Book;
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.AbstractAction;
 import net.nexttext.behaviour.Action;
+import net.nexttext.behaviour.ActionState;
 import net.nexttext.property.Property;
 
 /**
@@ -33,6 +35,19 @@ import net.nexttext.property.Property;
  * 
  * <p>If the condition was evaluated to true, then it will apply the trueAction 
  * otherwise it will apply the falseAction.  </p>
+ *
+ * <p>The outcome for an object is worked out once per step of its Book, and
+ * remembered on the object for the rest of the step, see {@link
+ * #test(TextObject)}.  Conditions which give the same outcome, as told by
+ * {@link #getMemoKey()}, share what is remembered, so a test used by several
+ * behaviours is only made once per object per step.  Conditions which keep
+ * state of their own between calls, such as OnDrag, must be called every
+ * time, and turn this off with {@link #setMemoized(boolean)}.  </p>
+ *
+ * <p>A condition's own outcomes are dropped from an object when it completes
+ * for that object.  Shared outcomes stay on the object, one for each key,
+ * since other conditions may still use them, and the keys are kept by the
+ * Book, see {@link Book#getSharedStateId}.  </p>
  * 
  * TODO: Handle object pairs, object arrays.
  */
@@ -41,6 +56,29 @@ public abstract class Condition extends AbstractAction  {
     
     protected Action trueAction;
     protected Action falseAction;
+
+    private volatile boolean memoized = true;
+
+    // The memo key, found the first time it's needed.
+    private volatile Object memoKey = null;
+
+    // The owner of the remembered outcomes when the key is this condition's
+    // own, in which case they are dropped when it completes.
+    private final int privateMemoId = newId();
+
+    // The owner of the remembered outcomes when the key is shared, which
+    // each Book hands out, for the last Book this condition was used in.
+    private volatile SharedMemoId sharedMemoId = null;
+
+    private static final class SharedMemoId {
+        final Book book;
+        final int id;
+
+        SharedMemoId(Book book, int id) {
+            this.book = book;
+            this.id = id;
+        }
+    }
    
     public Condition( Action trueAction, Action falseAction ) {        
         this.trueAction = trueAction;
@@ -51,6 +89,127 @@ public abstract class Condition extends AbstractAction  {
      * @return the outcome of the condition.
      */
     public abstract boolean condition( TextObject to );
+
+    /**
+     * Get the outcome of the condition for an object, calling {@link
+     * #condition(TextObject)} only the first time it is asked for in a step.
+     *
+     * <p>Objects which aren't in a Book have no steps, and are always
+     * tested.  </p>
+     */
+    public final boolean test(TextObject to) {
+        Book book = to.getBook();
+        if (!memoized || book == null) {
+            return condition(to);
+        }
+
+        // The step is stored plus one, so that new state doesn't look like
+        // an outcome for step 0, with the outcome in the lowest bit.  Both
+        // go in one field so that a reader never sees the step of one
+        // outcome with the result of another.
+        long stamp = (book.getClock().getSteps() + 1) << 1;
+        int owner = getMemoId(book);
+        ActionState memo = to.getActionState(owner);
+        if (memo == null) {
+            memo = new ActionState(owner);
+            to.addActionState(memo);
+        } else if ((memo.l & ~1L) == stamp) {
+            return (memo.l & 1L) != 0;
+        }
+        boolean outcome = condition(to);
+        memo.l = outcome ? stamp | 1L : stamp;
+        return outcome;
+    }
+
+    /**
+     * Whether outcomes are remembered for the rest of a step.
+     */
+    public boolean isMemoized() {
+        return memoized;
+    }
+
+    /**
+     * Set whether outcomes are remembered for the rest of a step.  It is on
+     * by default, and should be turned off by conditions which change
+     * something when they are called, or which may give a different outcome
+     * for the same object twice in one step.
+     */
+    public void setMemoized(boolean memoized) {
+        this.memoized = memoized;
+    }
+
+    /**
+     * The key under which outcomes are remembered.  Conditions with equal
+     * keys must give the same outcome for the same object in the same step.
+     * The key is asked for once, the first time it's needed.
+     *
+     * <p>By default it is the condition itself, so nothing is shared.
+     * Subclasses which only test something about the object, such as
+     * OnMouseOver, return a key made from what they test against.  </p>
+     */
+    protected Object getMemoKey() {
+        return this;
+    }
+
+    /**
+     * Make a memo key from the objects a condition tests against.  Keys
+     * are equal when they hold the very same objects, in the same order.
+     */
+    protected static Object memoKey(Object... parts) {
+        return new MemoKey(parts);
+    }
+
+    private static final class MemoKey {
+        private final Object[] parts;
+
+        MemoKey(Object[] parts) {
+            this.parts = parts.clone();
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof MemoKey)) return false;
+            Object[] other = ((MemoKey) o).parts;
+            if (other.length != parts.length) return false;
+            for (int i = 0; i < parts.length; i++) {
+                if (other[i] != parts[i]) return false;
+            }
+            return true;
+        }
+
+        public int hashCode() {
+            int h = 1;
+            for (int i = 0; i < parts.length; i++) {
+                h = 31 * h + System.identityHashCode(parts[i]);
+            }
+            return h;
+        }
+    }
+
+    private int getMemoId(Book book) {
+        Object key = memoKey;
+        if (key == null) {
+            key = getMemoKey();
+            memoKey = key;
+        }
+        if (key == this) {
+            return privateMemoId;
+        }
+        SharedMemoId shared = sharedMemoId;
+        if (shared == null || shared.book != book) {
+            shared = new SharedMemoId(book, book.getSharedStateId(key));
+            sharedMemoId = shared;
+        }
+        return shared.id;
+    }
+
+    /**
+     * Forget the outcome remembered for an object, if it is this
+     * condition's own.  Outcomes shared with other conditions are left for
+     * them.
+     */
+    void forgetMemo(TextObject to) {
+        to.removeActionState(privateMemoId);
+    }
         
     /**
      * Applies the trueAction if the result of condition() is true and 
@@ -58,13 +217,13 @@ public abstract class Condition extends AbstractAction  {
      * 
      * @return the result of the Action that was applied.
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
         
-        if ( condition(to) ) {
-            return trueAction.behave(to);
+        if ( test(to) ) {
+            return behaveBits(trueAction, to);
         }
         else {
-            return falseAction.behave(to);
+            return behaveBits(falseAction, to);
         }
     }
 
@@ -73,6 +232,7 @@ public abstract class Condition extends AbstractAction  {
      */
     public void complete(TextObject to) {
         super.complete(to);
+        forgetMemo(to);
         trueAction.complete(to);
         falseAction.complete(to);
     }
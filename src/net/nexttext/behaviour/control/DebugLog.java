@@ -69,16 +69,16 @@ public class DebugLog extends AbstractAction {
         return msg;
     }
 
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
         StringBuffer msg = asString(to);
         msg.insert(0,prefix);
-        ActionResult res = new ActionResult(true, true, false);
+        int res = ActionResult.pack(true, true, false);
         if (action != null) {
-            res = action.behave(to);
+            res = behaveBits(action, to);
             msg.append(" returning (");
-            msg.append(res.complete ? "t" : "f");
-            msg.append(res.canComplete ? "t" : "f");
-            msg.append(res.event ? "t" : "f");
+            msg.append(ActionResult.isComplete(res) ? "t" : "f");
+            msg.append(ActionResult.canComplete(res) ? "t" : "f");
+            msg.append(ActionResult.isEvent(res) ? "t" : "f");
             msg.append(")");
         }
         to.getBook().log(msg.toString());
@@ -19,21 +19,30 @@
 
 package net.nexttext.behaviour.control;
 
+import java.util.Set;
+
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.AbstractAction;
 import net.nexttext.behaviour.Action;
+import net.nexttext.behaviour.ActionState;
 import net.nexttext.property.NumberProperty;
 
 /**
  * Delays a given action for a number of seconds.
  * 
+ * <p>Time is measured by the clock of the object's Book, see {@link
+ * net.nexttext.SimulationClock#getTimeNanos()}.  </p>
+ *
  * @see Timer
  */
 /* $Id$ */
 public class Delay extends AbstractAction {
 
+    private static final PropertyKey<NumberProperty> DURATION =
+        PropertyKey.get("Duration", NumberProperty.class);
+
     Action action;
-    long timeLeft; // for handling clock discrepancies
     
     /**
      * Creates a Delay for the given action.
@@ -42,7 +51,6 @@ public class Delay extends AbstractAction {
      */
     public Delay( Action action, float duration ) {
         this.action = action;
-        this.timeLeft = 1000*(long)duration;
         properties().init("Duration", new NumberProperty(1000*duration));
     }
     
@@ -53,42 +61,37 @@ public class Delay extends AbstractAction {
      * complete.  Once the delay is complete, the result of the delayed Action
      * will be returned.  </p>
      */
-    public ActionResult behave(TextObject to) {
-        
-        // get the time elapsed for that object
-        Long startTime = (Long)textObjectData.get(to);
+    public int behaveBits(TextObject to) {
         
-        // create a map entry for new objects
+        // the book's clock only moves forward, and is the same for every
+        // object in a step
+        long now = getTimeNanos(to);
+
+        // get the start time for that object, stamping new objects
+        ActionState startTime = getState(to);
         if ( startTime == null ) {
-            startTime = new Long( System.currentTimeMillis() );   
-            textObjectData.put(to, startTime);
+            startTime = state(to);
+            startTime.l = now;
         }
         
-        // get duration property
-        long duration = ((NumberProperty)properties().get("Duration")).getLong();
+        // get duration property, in milliseconds
+        long duration = properties().get(DURATION).getLong() * 1000000L;
         
-        // It happens that the clock gets out of sync and jumps back in time
-        // the result is that the Delay object will wait much longer before
-        // getting to the end time.
-        //
-        // timeLeft keeps track of the time difference between the startTime 
-        // and the total duration. When the clock jumps back in time, we reset 
-        // the startTime to adjust to the new clock timing and the time left.
-        //
-        long now = System.currentTimeMillis();
-         if (now-startTime.longValue() < 0) {
-            startTime = new Long(now + timeLeft - duration);
-            textObjectData.put(to, startTime);
-        } else {
-            timeLeft = startTime.longValue() + duration - now;
-        }
-        if ( (now-startTime.longValue()) >= duration ) {
-            ActionResult res = action.behave(to);
-            if (res.complete) {
+        if ( (now-startTime.l) >= duration ) {
+            int res = behaveBits(action, to);
+            if (ActionResult.isComplete(res)) {
                 complete(to);
             }
             return res;
         }        
-        return new ActionResult(false, true, false);
+        return ActionResult.pack(false, true, false);
+    }
+
+    public Set<String> getReadProperties() {
+        return readsOf(action);
+    }
+
+    public Set<String> getWrittenProperties() {
+        return writesOf(action);
     }
 }
@@ -22,7 +22,9 @@ package net.nexttext.behaviour.control;
 import java.util.Map;
 import java.util.LinkedList;
 import java.util.WeakHashMap;
+import java.util.Set;
 
+import net.nexttext.PropertyTemplate;
 import net.nexttext.TextObject;
 import net.nexttext.TextObjectGroup;
 import net.nexttext.behaviour.AbstractAction;
@@ -50,6 +52,7 @@ public class Descend extends AbstractAction {
     // needs to be initialised once, so those that have been initialised are
     // remembered in initedDescendants.
     protected Map<String, Property> descendantReqProps;    
+    private PropertyTemplate descendantTemplate;
     /* 
      * Using a WeakHashMap here makes this action less prone to memory
      * leaks should the structure of a TextObject being processed by this
@@ -77,6 +80,7 @@ public class Descend extends AbstractAction {
         this.descendantAction = descendantAction;
         this.depth = depth;
         this.descendantReqProps = descendantAction.getRequiredProperties();
+        this.descendantTemplate = new PropertyTemplate(descendantReqProps);
     }
 
     /**
@@ -85,20 +89,20 @@ public class Descend extends AbstractAction {
      * <p>The results of the action calls are combined using the method
      * described in Action.ActionResult.  </p>
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
 
-        ActionResult res = new ActionResult();
+        int res = ActionResult.COMBINE;
         LinkedList<TextObject> descendants = getDescendants(to);
         while (!descendants.isEmpty()) {
             TextObject desc = descendants.removeFirst();
             initRequiredProperties(desc);
-            res.combine(descendantAction.behave(desc));
+            res = ActionResult.combine(res, behaveBits(descendantAction, desc));
         }
-        res.endCombine();
+        res = ActionResult.endCombine(res);
         // Descend can return complete even if descendantAction didn't return
         // complete on all the children, so if necessary inform all children
         // that it's complete.
-        if (res.complete) complete(to);
+        if (ActionResult.isComplete(res)) complete(to);
         return res;
     }
 
@@ -150,8 +154,16 @@ public class Descend extends AbstractAction {
      */
     private void initRequiredProperties(TextObject to) {
         if (initedDescendants.get(to) == null) {
-            to.initProperties(descendantReqProps);
+            to.initProperties(descendantTemplate);
             initedDescendants.put(to, true);
         }
     }
+
+    public Set<String> getReadProperties() {
+        return readsOf(descendantAction);
+    }
+
+    public Set<String> getWrittenProperties() {
+        return writesOf(descendantAction);
+    }
 }
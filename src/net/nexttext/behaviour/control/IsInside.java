@@ -48,4 +48,12 @@ public class IsInside extends Condition {
 
         return area.intersects(objectBB);
     }     
+
+    /**
+     * All IsInsides on the same area share their outcomes.
+     */
+    protected Object getMemoKey() {
+        if (getClass() != IsInside.class) return this;
+        return memoKey(IsInside.class, area);
+    }
 }
@@ -24,35 +24,32 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
 
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.AbstractAction;
 import net.nexttext.behaviour.Action;
+import net.nexttext.behaviour.ActionState;
 import net.nexttext.property.Property;
 
 /**
  * The Multiplexer applies a series of Actions in parallel.
+ *
+ * <p>Which of the actions are done with each TextObject is remembered as a
+ * flag per action in the object's state, numbered by the action's position in
+ * the list.  </p>
  */
 /* $Id$ */
 public class Multiplexer extends AbstractAction {
 
     protected List<Action> actions;
-    protected HashMap<Action, HashSet<TextObject>> doneWithObject;
     
     /**
      * @param actions a List containing Action objects.
      */
     public Multiplexer( List<Action> actions ) {
         this.actions = actions;
-        doneWithObject = new HashMap<Action, HashSet<TextObject>>();
-
-        Action action;
-        for (ListIterator<Action> i = actions.listIterator(); i.hasNext(); ) {
-        	action = i.next();
-        	doneWithObject.put(action, new HashSet<TextObject>());
-        }
     }
     
     /**
@@ -60,7 +57,6 @@ public class Multiplexer extends AbstractAction {
      */
     public Multiplexer() {
         actions = new ArrayList<Action>();
-        doneWithObject = new HashMap<Action, HashSet<TextObject>>();
     }
 
     /**
@@ -68,7 +64,7 @@ public class Multiplexer extends AbstractAction {
      */
     public void add(Action action) {
         actions.add(action);
-        doneWithObject.put(action, new HashSet<TextObject>());
+        treeChanged();
     }
 
     /**
@@ -77,34 +73,32 @@ public class Multiplexer extends AbstractAction {
      * <p>The results of the called actions are combined using the method
      * described in ActionResult.  </p>
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
 
-        ActionResult res = new ActionResult();
-                
-        for (Iterator<Action> i = actions.iterator(); i.hasNext(); ) {
-            Action current = i.next();
-            ActionResult tres = null;
-            //If textObjects do not have entries in this hashSet
-            //then this behaviour has not finished with them            
-            if ( doneWithObject.get(current).contains(to) )
-                tres = new ActionResult(true,true,false);                     
+        int res = ActionResult.COMBINE;
+        ActionState done = state(to);
+
+        int n = actions.size();
+        for (int i = 0; i < n; i++) {
+            Action current = actions.get(i);
+            int tres;
+            //If the flag for an action is not set then it has not
+            //finished with the object
+            if ( done.getFlag(i) )
+                tres = ActionResult.pack(true,true,false);                     
             else 
-                tres = current.behave(to);
+                tres = behaveBits(current, to);
                             
-            if (tres.complete){
-            	doneWithObject.get(current).add(to);                
+            if (ActionResult.isComplete(tres)){
+                done.setFlag(i, true);
             }
-            res.combine(tres);
+            res = ActionResult.combine(res, tres);
             
         }
-        res.endCombine();
+        res = ActionResult.endCombine(res);
         // The multiplexer can return complete even if all its actions did not,
         // so those ones need to be informed that it is complete.
-        if(res.complete){
-            for (Iterator<Action> i = actions.iterator(); i.hasNext(); ) {
-                Action current = i.next();
-                doneWithObject.get(current).remove(to);
-            }
+        if(ActionResult.isComplete(res)){
             complete(to);
         }
         return res;
@@ -114,10 +108,8 @@ public class Multiplexer extends AbstractAction {
      * Reset the multiplexer.
      */
     public void reset(TextObject to) {
-    	for (Iterator<Action> i = actions.iterator(); i.hasNext(); ) {
-            Action current = i.next();
-            doneWithObject.get(current).remove(to);
-        }
+        ActionState done = getState(to);
+        if (done != null) done.clearFlags();
     }
 
     /**
@@ -141,4 +133,26 @@ public class Multiplexer extends AbstractAction {
         }
         return rP;
     }
+
+    /**
+     * The properties read by any of the actions.
+     */
+    public Set<String> getReadProperties() {
+        Set<String> reads = new HashSet<String>();
+        for (Iterator<Action> i = actions.iterator(); i.hasNext(); ) {
+            reads = union(reads, readsOf(i.next()));
+        }
+        return reads;
+    }
+
+    /**
+     * The properties written by any of the actions.
+     */
+    public Set<String> getWrittenProperties() {
+        Set<String> writes = new HashSet<String>();
+        for (Iterator<Action> i = actions.iterator(); i.hasNext(); ) {
+            writes = union(writes, writesOf(i.next()));
+        }
+        return writes;
+    }
 }
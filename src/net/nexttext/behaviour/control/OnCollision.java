@@ -57,13 +57,13 @@ public class OnCollision extends AbstractAction {
      * <p>The results of the called actions are combined using the method
      * outlined in ActionResult.  </p>
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
         
         // get the glyph collision set for that object.
         Set<TextObjectGlyph> col = to.getBook().getSpatialList().getPotentialCollisions(to);
 
         if ( col.size() == 0 )
-            return new ActionResult(false, false, false);
+            return ActionResult.pack(false, false, false);
 
         // find out what is the depth of descendants of to.
         int height = to.getHeight();
@@ -90,15 +90,15 @@ public class OnCollision extends AbstractAction {
             colliders.add( collider );
         }
 
-        ActionResult res = new ActionResult();
+        int res = ActionResult.COMBINE;
 
         for ( Iterator<TextObject> i = colliders.iterator(); i.hasNext(); ) {
             TextObject collider = i.next();
             ActionResult tres = action.behave(new TextObject[] { collider, to });
-            res.combine(tres);
+            res = ActionResult.combine(res, ActionResult.pack(tres));
         }
 
-        return res.endCombine();
+        return ActionResult.endCombine(res);
     }
 
     public Map<String, Property> getRequiredProperties() {
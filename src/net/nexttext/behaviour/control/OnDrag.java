@@ -22,6 +22,7 @@ package net.nexttext.behaviour.control;
 import processing.core.PVector;
 import net.nexttext.Book;
 import net.nexttext.Locatable;
+import net.nexttext.PickService;
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.Action;
 import net.nexttext.behaviour.standard.DoNothing;
@@ -94,6 +95,8 @@ public class OnDrag extends Condition implements Locatable {
         this.buttonToCheck = buttonToCheck;
         dragging = false;
         dragOffset = new PVector();
+        // Calls start and end drags, so they must all be made.
+        setMemoized(false);
     }
 
     /** 
@@ -105,7 +108,7 @@ public class OnDrag extends Condition implements Locatable {
      */
     public boolean condition(TextObject to) {
     	if (mouse.isPressed(buttonToCheck)) {
-    		if (to.getBoundingPolygon().contains(mouse.getX(), mouse.getY())) {
+    		if (PickService.isUnderPoint(to, mouse.getX(), mouse.getY())) {
     			if (!dragging) {
     				// lock the mouse to the TextObject
     				dragging = true;
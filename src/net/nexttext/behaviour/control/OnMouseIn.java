@@ -45,6 +45,8 @@ public class OnMouseIn extends OnMouseOver {
         
         isOver = false;
         wasOver = false;
+        // It remembers the last call, so it must see every one.
+        setMemoized(false);
     }
 
     /**
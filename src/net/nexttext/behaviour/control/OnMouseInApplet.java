@@ -47,6 +47,8 @@ public class OnMouseInApplet extends OnMouseOverApplet {
         
         isOver = false;
         wasOver = false;
+        // It remembers the last call, so it must see every one.
+        setMemoized(false);
     }
 
     /**
@@ -20,6 +20,7 @@
 package net.nexttext.behaviour.control;
 
 import net.nexttext.Book;
+import net.nexttext.PickService;
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.Action;
 import net.nexttext.behaviour.standard.DoNothing;
@@ -65,6 +66,15 @@ public class OnMouseOver extends Condition {
      * @return the outcome of the condition
      */
     public boolean condition(TextObject to) {
-        return to.getBoundingPolygon().contains(mouse.getX(), mouse.getY());
+        return PickService.isUnderPoint(to, mouse.getX(), mouse.getY());
+    }
+
+    /**
+     * All OnMouseOvers on the same mouse share their outcomes.  Subclasses
+     * test something else, and keep their own.
+     */
+    protected Object getMemoKey() {
+        if (getClass() != OnMouseOver.class) return this;
+        return memoKey(OnMouseOver.class, mouse);
     }
 }
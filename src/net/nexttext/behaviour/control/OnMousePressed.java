@@ -55,6 +55,8 @@ public class OnMousePressed extends OnMouseDepressed {
         
         isPressed = false;
         wasPressed = false;
+        // It remembers the last call, so it must see every one.
+        setMemoized(false);
     }
     
     /**
@@ -19,6 +19,7 @@
 
 package net.nexttext.behaviour.control;
 
+import net.nexttext.PickService;
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.Action;
 import net.nexttext.input.MouseDefault;
@@ -56,6 +57,8 @@ public class OnMouseReleasedOver extends OnMouseDepressed {
     
         isPressed = false;
         wasPressed = false;
+        // It remembers the last call, so it must see every one.
+        setMemoized(false);
     }
     
     /**
@@ -69,7 +72,7 @@ public class OnMouseReleasedOver extends OnMouseDepressed {
         wasPressed = isPressed;
         isPressed = super.condition(to);
         
-        if (wasPressed && !isPressed && to.getBoundingPolygon().contains(mouse.getX(), mouse.getY())) {
+        if (wasPressed && !isPressed && PickService.isUnderPoint(to, mouse.getX(), mouse.getY())) {
             return true;
         }
         return false;
@@ -20,10 +20,13 @@
 package net.nexttext.behaviour.control;
 
 import java.util.Map;
+import java.util.Set;
 
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.AbstractAction;
 import net.nexttext.behaviour.Action;
+import net.nexttext.behaviour.ActionState;
 import net.nexttext.property.NumberProperty;
 import net.nexttext.property.Property;
 
@@ -43,6 +46,9 @@ import net.nexttext.property.Property;
 /* $Id$ */
 public class Repeat extends AbstractAction {
 
+    private static final PropertyKey<NumberProperty> REPETITIONS =
+        PropertyKey.get("Repetitions", NumberProperty.class);
+
     Action action;
 
     /**
@@ -66,40 +72,39 @@ public class Repeat extends AbstractAction {
     /**
      * See class description. 
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
         
         // get the repetition property
-        long rep = ((NumberProperty)properties().get("Repetitions")).getLong();
+        long rep = properties().get(REPETITIONS).getLong();
         
-        ActionResult tres = action.behave(to);
+        int tres = behaveBits(action, to);
         if (rep > 0) {
-            // get the counter for that object
-            Integer counter = (Integer) textObjectData.get(to);
+            // increment the counter for that object, which starts at zero
+            ActionState counter = state(to);
+            counter.i++;
 
-            // if there was no counter for that object create a new one.
-            if ( counter == null ) {
-                counter = new Integer(1);
-            } else {
-                // increment the counter
-                counter = new Integer(counter.intValue()+1);    
-            }
-            
             // check if we reached the max number of repetitions
-            if (counter.intValue() >= rep) {
+            if (counter.i >= rep) {
                 // remove the counter
-                textObjectData.remove(to);
-                return new ActionResult(true, true, tres.event);
+                clearState(to);
+                return ActionResult.pack(true, true, ActionResult.isEvent(tres));
             } else {
-                // put the updated counter back
-                textObjectData.put(to, counter);
-                return new ActionResult(false, true, tres.event);
+                return ActionResult.pack(false, true, ActionResult.isEvent(tres));
             }
         }
         // if the Repeat is set to infinite repetitions 
-        return new ActionResult(false, false, tres.event);
+        return ActionResult.pack(false, false, ActionResult.isEvent(tres));
     }
 
     public Map<String, Property> getRequiredProperties() {
         return action.getRequiredProperties();
     }
+
+    public Set<String> getReadProperties() {
+        return readsOf(action);
+    }
+
+    public Set<String> getWrittenProperties() {
+        return writesOf(action);
+    }
 }
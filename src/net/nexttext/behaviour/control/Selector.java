@@ -19,14 +19,18 @@
 
 package net.nexttext.behaviour.control;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Iterator;
+import java.util.Set;
 
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.AbstractAction;
 import net.nexttext.behaviour.Action;
+import net.nexttext.behaviour.ActionState;
 import net.nexttext.property.Property;
 
 /**
@@ -49,11 +53,14 @@ public class Selector extends AbstractAction {
     
     HashMap<String, Action> actions;
     Action current;          
-    HashMap<Action, HashMap<TextObject, Boolean>> actionDoneProcessing;             
+    // Each distinct action gets a number, which is the flag in an object's
+    // state recording that the action has finished processing it.
+    ArrayList<Action> numbered;
+    int currentNumber;
     
     public Selector (){
         actions = new HashMap<String, Action>();
-        actionDoneProcessing = new HashMap<Action, HashMap<TextObject, Boolean>>(); 
+        numbered = new ArrayList<Action>();
     }
     
     /**
@@ -63,9 +70,11 @@ public class Selector extends AbstractAction {
      * @param name - the name of the action to be selected.
      */
     public synchronized void select(String name){
-        current = actions.get(name);
-        if(current == null)
+        Action selected = actions.get(name);
+        if(selected == null)
             throw new NullPointerException("This selector does not contain the action: " + name);
+        currentNumber = numbered.indexOf(selected);
+        current = selected;
               
     }
     
@@ -76,7 +85,8 @@ public class Selector extends AbstractAction {
      */
     public void add(String name, Action action){
         actions.put(name, action);
-        actionDoneProcessing.put(action, new HashMap<TextObject, Boolean>());
+        treeChanged();
+        if (!numbered.contains(action)) numbered.add(action);
     }
     
     /**
@@ -86,16 +96,15 @@ public class Selector extends AbstractAction {
      * completes or signals an event. Else returns ActionResult(false, false, false)
      * 
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
        //Check if the current action previously indicated that it was finished 
        //with this textObject
-       HashMap<TextObject, Boolean> doneWith = actionDoneProcessing.get(current);
-       Boolean completed = (Boolean)doneWith.get(to);
-       if (completed != null && completed.booleanValue() == true){
-           return new ActionResult(false, false, false);
+       ActionState doneWith = state(to);
+       if (doneWith.getFlag(currentNumber)){
+           return ActionResult.pack(false, false, false);
        }
        else {
-           ActionResult currResult = current.behave(to);
+           int currResult = behaveBits(current, to);
            /*
             * If the current action returns complete, we do not
             * want the selector to return complete, because the
@@ -103,13 +112,13 @@ public class Selector extends AbstractAction {
             * 
             * Instead we signal that an event has occurred.
             */ 
-           if(currResult.complete){
+           if(ActionResult.isComplete(currResult)){
                current.complete(to);
-               doneWith.put(to, new Boolean(true));
-               return new ActionResult(false, false, true);
+               doneWith.setFlag(currentNumber, true);
+               return ActionResult.pack(false, false, true);
            }           
            else
-              return new ActionResult(false, false, false);
+              return ActionResult.pack(false, false, false);
        }
     }
     
@@ -127,4 +136,26 @@ public class Selector extends AbstractAction {
         }        
         return props;
     }
+
+    /**
+     * The properties read by any of the actions.
+     */
+    public Set<String> getReadProperties() {
+        Set<String> reads = new HashSet<String>();
+        for (Iterator<Action> i = actions.values().iterator(); i.hasNext(); ) {
+            reads = union(reads, readsOf(i.next()));
+        }
+        return reads;
+    }
+
+    /**
+     * The properties written by any of the actions.
+     */
+    public Set<String> getWrittenProperties() {
+        Set<String> writes = new HashSet<String>();
+        for (Iterator<Action> i = actions.values().iterator(); i.hasNext(); ) {
+            writes = union(writes, writesOf(i.next()));
+        }
+        return writes;
+    }
 }
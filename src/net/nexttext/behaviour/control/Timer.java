@@ -20,10 +20,13 @@
 package net.nexttext.behaviour.control;
 
 import java.util.Map;
+import java.util.Set;
 
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.AbstractAction;
 import net.nexttext.behaviour.Action;
+import net.nexttext.behaviour.ActionState;
 import net.nexttext.property.NumberProperty;
 import net.nexttext.property.Property;
 
@@ -31,13 +34,18 @@ import net.nexttext.property.Property;
  * A Timer executes a given action for an absolute period of time given in 
  * seconds.  
  * 
+ * <p>Time is measured by the clock of the object's Book, see {@link
+ * net.nexttext.SimulationClock#getTimeNanos()}.  </p>
+ *
  * @see Delay
  */
 /* $Id$ */
 public class Timer extends AbstractAction {
+
+    private static final PropertyKey<NumberProperty> DURATION =
+        PropertyKey.get("Duration", NumberProperty.class);
     
     Action action;
-    long timeLeft; // for handling clock discrepancies
     
     /**
      * Creates a Timer for the given action.
@@ -46,50 +54,33 @@ public class Timer extends AbstractAction {
      */
     public Timer( Action action, float duration ) {
         this.action = action;
-        this.timeLeft = (long)(1000*duration);
         properties().init("Duration", new NumberProperty(1000*duration));
     }
     
-    public ActionResult behave(TextObject to) {
-        
-        // get the time elapsed for that object
-        Long startTime = (Long) textObjectData.get(to);
+    public int behaveBits(TextObject to) {
         
-        // create a map entry for new objects
+        // the book's clock only moves forward, and is the same for every
+        // object in a step
+        long now = getTimeNanos(to);
+
+        // get the start time for that object, stamping new objects
+        ActionState startTime = getState(to);
         if ( startTime == null ) {
-            startTime = new Long( System.currentTimeMillis() );   
-            textObjectData.put(to, startTime);
+            startTime = state(to);
+            startTime.l = now;
         }
         
-        // get duration property
-        long duration = ((NumberProperty)properties().get("Duration")).getLong();
+        // get duration property, in milliseconds
+        long duration = properties().get(DURATION).getLong() * 1000000L;
         
-        long now = System.currentTimeMillis();
-        
-        // It happens that the clock gets out of sync and jumps back in time
-        // the result is that the Timer object will wait much longer before
-        // getting to the end time.
-        //
-        // timeLeft keeps track of the time difference between the startTime 
-        // and the total duration. When the clock jumps back in time, we reset 
-        // the startTime to adjust to the new clock timing and the time left.
-        //
-        if (now-startTime.longValue() < 0) {
-            startTime = new Long(now + timeLeft - duration);
-            textObjectData.put(to, startTime);
-        } else {
-            timeLeft = startTime.longValue() + duration - now;
-        }
-        if ( (now-startTime.longValue()) >= duration ) {
+        if ( (now-startTime.l) >= duration ) {
             // time's up my friend!
             // remove the map entry for this object
             complete(to);
-            return new ActionResult(true, true, true);
+            return ActionResult.pack(true, true, true);
         }        
         
-        ActionResult tres = action.behave(to);
-        tres.canComplete = true;
-        return tres;
+        return behaveBits(action, to) | ActionResult.CAN_COMPLETE;
     }
 
     public Map<String, Property> getRequiredProperties() {
@@ -100,4 +91,12 @@ public class Timer extends AbstractAction {
         super.complete(to);
         action.complete(to);
     }
+
+    public Set<String> getReadProperties() {
+        return readsOf(action);
+    }
+
+    public Set<String> getWrittenProperties() {
+        return writesOf(action);
+    }
 }
\ No newline at end of file
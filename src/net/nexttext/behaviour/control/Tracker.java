@@ -19,6 +19,8 @@
 
 package net.nexttext.behaviour.control;
 
+import java.util.Set;
+
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.AbstractAction;
 import net.nexttext.behaviour.Action;
@@ -34,6 +36,7 @@ import net.nexttext.behaviour.Action;
 public class Tracker extends AbstractAction {
 
     Action action;
+    int count = 0;
 
     /**
      * Construct a Tracker for the given Action.
@@ -45,12 +48,15 @@ public class Tracker extends AbstractAction {
     /**
      * Pass the TextObject on to the contained Action, tracking the object.
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
 
-        textObjectData.put(to, null);
+        if (getState(to) == null) {
+            state(to);
+            count++;
+        }
 
-        ActionResult res = action.behave(to);
-        if (res.complete) {
+        int res = behaveBits(action, to);
+        if (ActionResult.isComplete(res)) {
             complete(to);
         }
         return res;
@@ -60,13 +66,29 @@ public class Tracker extends AbstractAction {
      * Get the count of objects currently being processed by the action.
      */
     public int getCount() {
-        return textObjectData.size();
+        return count;
     }
 
     /**
      * Determine if a specific object is being processed by the action.
      */
     public boolean isProcessing(TextObject to) {
-        return textObjectData.containsKey(to);
+        return getState(to) != null;
+    }
+
+    /**
+     * Stop tracking the object.
+     */
+    public void complete(TextObject to) {
+        if (getState(to) != null) count--;
+        super.complete(to);
+    }
+
+    public Set<String> getReadProperties() {
+        return readsOf(action);
+    }
+
+    public Set<String> getWrittenProperties() {
+        return writesOf(action);
     }
 }
@@ -19,16 +19,17 @@
 
 package net.nexttext.behaviour.dform;
 
-import java.util.Iterator;
+import java.util.Set;
 
 import processing.core.PVector;
 
+import net.nexttext.TextObject;
 import net.nexttext.Locatable;
 import net.nexttext.PLocatableVector;
 import net.nexttext.TextObjectGlyph;
 import net.nexttext.behaviour.TargetingAction;
 import net.nexttext.property.PVectorListProperty;
-import net.nexttext.property.PVectorProperty;
+import net.nexttext.behaviour.ObjectLocalAction;
 
 /** 
  * ChaosPull is similar to {@link Pull} except that the control points get into a chaotic state when
@@ -37,7 +38,8 @@ import net.nexttext.property.PVectorProperty;
  * TODO: add parameters.
  */
 /* $Id$ */
-public class ChaosPull extends DForm implements TargetingAction{
+public class ChaosPull extends DForm
+    implements TargetingAction, ObjectLocalAction {
 
     Locatable target;
     int chaosStrength;
@@ -101,9 +103,9 @@ public class ChaosPull extends DForm implements TargetingAction{
     }
        
     /* (non-Javadoc)
-     * @see net.nexttext.behaviour.dform.DForm#behave(net.nexttext.TextObjectGlyph)
+     * @see net.nexttext.behaviour.dform.DForm#behaveBits(net.nexttext.TextObjectGlyph)
      */
-    public ActionResult behave(TextObjectGlyph to) {    
+    public int behaveBits(TextObjectGlyph to) {    
         
         // Get the position of the target relative to the TextObject.
     	PVector toAbsPos = to.getPositionAbsolute();
@@ -113,23 +115,24 @@ public class ChaosPull extends DForm implements TargetingAction{
         // Traverse the control points of the glyph, determine the distance
         // from it to the target and move it part way there.
         PVectorListProperty cPs = getControlPoints(to);
-        Iterator<PVectorProperty> i = cPs.iterator();
-        while (i.hasNext()) {
+        float[] p = getPoints(to);
+        int n = cPs.size() * 3;
+        for (int j = 0; j < n; j += 3) {
+            float dx = targetV.x - p[j];
+            float dy = targetV.y - p[j+1];
+            float dz = targetV.z - p[j+2];
+            float mag = (float)Math.sqrt(dx*dx + dy*dy + dz*dz);
             
-        	PVectorProperty cP = i.next();
-        	PVector p = cP.get();
+            float pullForce = chaosStrength/(mag+25);
+            float f = pullForce / mag;
             
-        	PVector offset = new PVector(targetV.x, targetV.y, targetV.z);
-            offset.sub(p);
-            
-            float pullForce = chaosStrength/(offset.mag()+25);
-            offset.mult( pullForce / offset.mag() );
-            
-            p.add(offset);
-            cP.set(p);  
+            p[j] += dx * f;
+            p[j+1] += dy * f;
+            p[j+2] += dz * f;
         }
+        cPs.setPoints(p);
         
-        return new ActionResult(false, false, false);
+        return ActionResult.pack(false, false, false);
     }
 
     public int getChaosStrength() {
@@ -161,5 +164,19 @@ public class ChaosPull extends DForm implements TargetingAction{
     public void setTarget( Locatable target ) {
         this.target = target;
     }    
+
+    private static final Set<String> READS =
+        names(TextObjectGlyph.CONTROL_POINTS, TextObject.POSITION,
+              TextObject.ROTATION);
+    private static final Set<String> WRITES =
+        names(TextObjectGlyph.CONTROL_POINTS);
+
+    public Set<String> getReadProperties() {
+        return READS;
+    }
+
+    public Set<String> getWrittenProperties() {
+        return WRITES;
+    }
 }
 
@@ -24,6 +24,7 @@ import net.nexttext.TextObjectGlyph;
 import net.nexttext.TextObjectGlyphIterator;
 import net.nexttext.TextObjectGroup;
 import net.nexttext.behaviour.AbstractAction;
+import net.nexttext.behaviour.UnsupportedActionException;
 import net.nexttext.property.PVectorListProperty;
 
 /**
@@ -44,10 +45,66 @@ public abstract class DForm extends AbstractAction {
         return tog.getControlPoints();
     }
 
+    // Scratch arrays for the packed control points, kept per thread so that
+    // a DForm can be used by behaviours running on different threads.
+    private static ThreadLocal<float[][]> buffers = new ThreadLocal<float[][]>() {
+        protected float[][] initialValue() {
+            return new float[2][];
+        }
+    };
+
+    /**
+     * The current values of a glyph's control points, packed as x, y, z
+     * triplets.
+     *
+     * <p>The returned array is reused by the next call on the same thread, and
+     * may be longer than needed, so only the first <code>3 * size()</code>
+     * entries are meaningful.  Write the modified points back with
+     * {@link PVectorListProperty#setPoints}, which fires a single change event
+     * for the whole glyph.  </p>
+     */
+    protected float[] getPoints( TextObjectGlyph tog ) {
+        float[][] b = buffers.get();
+        b[0] = getControlPoints(tog).getPoints(b[0]);
+        return b[0];
+    }
+
+    /**
+     * The original values of a glyph's control points, packed in the same way
+     * as {@link #getPoints}, in a second reused array.
+     */
+    protected float[] getOriginalPoints( TextObjectGlyph tog ) {
+        float[][] b = buffers.get();
+        b[1] = getControlPoints(tog).getOriginalPoints(b[1]);
+        return b[1];
+    }
+
+    // Whether this class returns its results from behaveBits(TextObjectGlyph),
+    // rather than overriding behave(TextObjectGlyph).
+    private final boolean packsGlyphResults =
+        overrides(DForm.class, "behaveBits", TextObjectGlyph.class);
+
     /**
      * DForms generally just make sense on TextObjectGlyphs.
+     *
+     * <p>Subclasses should override this or
+     * {@link #behaveBits(TextObjectGlyph)}, which doesn't allocate a
+     * result.  </p>
+     *
+     * @throws UnsupportedActionException if neither is overridden
      */
-    public abstract ActionResult behave(TextObjectGlyph to);
+    public ActionResult behave(TextObjectGlyph to) {
+        if (packsGlyphResults) return ActionResult.unpack(behaveBits(to));
+        throw new UnsupportedActionException("This DForm doesn't implement behave");
+    }
+
+    /**
+     * Performs the DForm on a glyph, returning a packed result.  The default
+     * implementation packs the result of behave(TextObjectGlyph).
+     */
+    public int behaveBits(TextObjectGlyph to) {
+        return ActionResult.pack(behave(to));
+    }
 
     /**
      * Default implementation which recursively calls behave on all children.
@@ -55,17 +112,16 @@ public abstract class DForm extends AbstractAction {
      * <p>The results of the called actions are combined using the method
      * outlined in ActionResult.  </p>
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
         if (to instanceof TextObjectGlyph) {
-            return behave((TextObjectGlyph) to);
+            return behaveBits((TextObjectGlyph) to);
         } else {
-            ActionResult result = new ActionResult();
+            int result = ActionResult.COMBINE;
             TextObjectGlyphIterator i = ((TextObjectGroup) to).glyphIterator();
             while (i.hasNext()) {
-                ActionResult tres = behave(i.next());
-                result.combine(tres);
+                result = ActionResult.combine(result, behaveBits(i.next()));
             }
-            return result.endCombine();
+            return ActionResult.endCombine(result);
         }
     }
 }
\ No newline at end of file
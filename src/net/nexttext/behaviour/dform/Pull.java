@@ -19,16 +19,18 @@
 
 package net.nexttext.behaviour.dform;
 
+import java.util.Set;
+
+import net.nexttext.TextObject;
+import net.nexttext.PropertyKey;
 import net.nexttext.CoordinateSystem;
 import net.nexttext.Locatable;
 import net.nexttext.PLocatableVector;
 import net.nexttext.TextObjectGlyph;
 import net.nexttext.behaviour.TargetingAction;
+import net.nexttext.behaviour.ObjectLocalAction;
 import net.nexttext.property.NumberProperty;
 import net.nexttext.property.PVectorListProperty;
-import net.nexttext.property.PVectorProperty;
-
-import java.util.Iterator;
 
 import processing.core.PVector;
 
@@ -36,7 +38,13 @@ import processing.core.PVector;
  * A DForm which pulls the TextObject towards the mouse.
  */
 /* $Id$ */
-public class Pull extends DForm implements TargetingAction {
+public class Pull extends DForm
+    implements TargetingAction, ObjectLocalAction {
+
+    private static final PropertyKey<NumberProperty> SPEED =
+        PropertyKey.get("Speed", NumberProperty.class);
+    private static final PropertyKey<NumberProperty> REACH =
+        PropertyKey.get("Reach", NumberProperty.class);
     
     Locatable target;
 
@@ -102,9 +110,9 @@ public class Pull extends DForm implements TargetingAction {
     	this(new PLocatableVector(x, y, z), speed, reach);
     }
     
-    public ActionResult behave(TextObjectGlyph to) {
-        float speed = ((NumberProperty)properties().get("Speed")).get();
-        float reach = ((NumberProperty)properties().get("Reach")).get();
+    public int behaveBits(TextObjectGlyph to) {
+        float speed = properties().get(SPEED).get();
+        float reach = properties().get(REACH).get();
 
         // Get the position of the target relative to the TextObject.
         CoordinateSystem ac = to.getAbsoluteCoordinateSystem();
@@ -114,20 +122,22 @@ public class Pull extends DForm implements TargetingAction {
         // Traverse the control points of the glyph, determine the distance
         // from it to the target and move it part way there.
         PVectorListProperty cPs = getControlPoints(to);
-        Iterator<PVectorProperty> i = cPs.iterator();
-        while (i.hasNext()) {
-        	PVectorProperty cP = i.next();
-        	PVector p = cP.get();
-
-        	PVector offset = new PVector(targetV.x, targetV.y, targetV.z);
-            offset.sub(p);
-
-            offset.mult(1 / (float)Math.pow(1 + 1 / reach, offset.mag() / speed));
-
-            p.add(offset);
-            cP.set(p);
+        float[] p = getPoints(to);
+        int n = cPs.size() * 3;
+        for (int j = 0; j < n; j += 3) {
+            float dx = targetV.x - p[j];
+            float dy = targetV.y - p[j+1];
+            float dz = targetV.z - p[j+2];
+            float mag = (float)Math.sqrt(dx*dx + dy*dy + dz*dz);
+
+            float f = 1 / (float)Math.pow(1 + 1 / reach, mag / speed);
+
+            p[j] += dx * f;
+            p[j+1] += dy * f;
+            p[j+2] += dz * f;
         }
-        return new ActionResult(false, false, false);
+        cPs.setPoints(p);
+        return ActionResult.pack(false, false, false);
     }
     
     public void setTarget( float x, float y ) {
@@ -145,4 +155,18 @@ public class Pull extends DForm implements TargetingAction {
     public void setTarget( Locatable target ) {
         this.target = target;
     }    
+
+    private static final Set<String> READS =
+        names(TextObjectGlyph.CONTROL_POINTS, TextObject.POSITION,
+              TextObject.ROTATION);
+    private static final Set<String> WRITES =
+        names(TextObjectGlyph.CONTROL_POINTS);
+
+    public Set<String> getReadProperties() {
+        return READS;
+    }
+
+    public Set<String> getWrittenProperties() {
+        return WRITES;
+    }
 }
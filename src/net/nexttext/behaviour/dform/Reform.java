@@ -19,13 +19,11 @@
 
 package net.nexttext.behaviour.dform;
 
+import java.util.Set;
+
 import net.nexttext.TextObjectGlyph;
 import net.nexttext.property.PVectorListProperty;
-import net.nexttext.property.PVectorProperty;
-
-import java.util.Iterator;
-
-import processing.core.PVector;
+import net.nexttext.behaviour.ObjectLocalAction;
 
 /**
  * A DForm which reverts TextObject to its original shape.
@@ -39,7 +37,7 @@ import processing.core.PVector;
  * into a Repeat behaviour. </p>
  */
 /* $Id$ */
-public class Reform extends DForm {
+public class Reform extends DForm implements ObjectLocalAction {
     
     public static final int STYLE_LINEAR = 1;
     public static final int STYLE_EXPONENTIAL = 2;    
@@ -80,51 +78,61 @@ public class Reform extends DForm {
         }
     }
 
-    public ActionResult behave(TextObjectGlyph to) {         
+    public int behaveBits(TextObjectGlyph to) {         
+        // if the glyph is not deformed, don't waste time reforming it, or
+        // asking for its control points, which would copy shared ones.
+        if (!to.isDeformed())
+            return ActionResult.pack(false, false, false);
+        
         // Traverse the control points of the glyph, determine the distance
         // from its current location to the origin and move it part way there.
     	PVectorListProperty cPs = getControlPoints(to);
-        Iterator<PVectorProperty> i = cPs.iterator();
+    	float[] c = getPoints(to);
+    	float[] o = getOriginalPoints(to);
+    	int n = cPs.size() * 3;
         
         boolean done = true;
         
-        // if the glyph is not deformed, don't waste time reforming it
-        if (!to.isDeformed())
-            return new ActionResult(false, false, false);
-        
-        while (i.hasNext()) {
-        	PVectorProperty cP = i.next();
-        	PVector cV = cP.get();
-        	PVector oV = cP.getOriginal();
+        for (int j = 0; j < n; j += 3) {
+            float dx = o[j] - c[j];
+            float dy = o[j+1] - c[j+1];
+            float dz = o[j+2] - c[j+2];
+            float mag = (float)Math.sqrt(dx*dx + dy*dy + dz*dz);
 
-        	PVector offset = PVector.sub(oV, cV);
-
-            // In order not to produce gratuitous property change events, if
-            // the offset is short, nothing is done.
-            if (offset.mag() < 0.1f) continue;
+            // If the offset is short, nothing is done.
+            if (mag < 0.1f) continue;
 
             // The reform algorithm is very slow when the points are close, so
             // once we reach a distance of 0.8 we just snap it back to its
             // original.
 
-            if (offset.mag() > 0.8f) {
+            if (mag > 0.8f) {
                 done = false;
 
+                float f;
                 if (style == STYLE_EXPONENTIAL) {                    
-                    offset.mult(1 - (float)Math.pow(Math.E, - offset.mag()/exponentialSpeed));
+                    f = 1 - (float)Math.pow(Math.E, - mag/exponentialSpeed);
                 } else {
-                    offset.mult(linearSpeed);
+                    f = linearSpeed;
                 }
+                dx *= f;
+                dy *= f;
+                dz *= f;
             }            
-            cV.add(offset);
-            cP.set(cV);
+            c[j] += dx;
+            c[j+1] += dy;
+            c[j+2] += dz;
         }
         if ( done ) {
+            // Every point is back in place, so snap them all to their
+            // originals, which lets the glyph share its control points again.
+            cPs.reset();
         	to.setDeformed(false);
-            return new ActionResult(true, true, false);
+            return ActionResult.pack(true, true, false);
         }
         
-        return new ActionResult(false, true, false);
+        cPs.setPoints(c);
+        return ActionResult.pack(false, true, false);
     }
 
     public float getExponentialSpeed() {
@@ -164,4 +172,17 @@ public class Reform extends DForm {
     public void setStyleExponential() {
         style = STYLE_EXPONENTIAL;
     }
+
+    private static final Set<String> READS =
+        names(TextObjectGlyph.CONTROL_POINTS);
+    private static final Set<String> WRITES =
+        names(TextObjectGlyph.CONTROL_POINTS);
+
+    public Set<String> getReadProperties() {
+        return READS;
+    }
+
+    public Set<String> getWrittenProperties() {
+        return WRITES;
+    }
 }
\ No newline at end of file
@@ -19,13 +19,13 @@
 
 package net.nexttext.behaviour.dform;
 
+import net.nexttext.TextObject;
 import net.nexttext.TextObjectGlyph;
 import net.nexttext.property.PVectorListProperty;
-import net.nexttext.property.PVectorProperty;
+import net.nexttext.behaviour.ObjectLocalAction;
 
 import java.awt.Rectangle;
-
-import java.util.Iterator;
+import java.util.Set;
 
 import processing.core.PVector;
 
@@ -34,7 +34,7 @@ import processing.core.PVector;
  *
  */
 /* $Id$ */
-public class Scale extends DForm {
+public class Scale extends DForm implements ObjectLocalAction {
     
     private float scale;
     
@@ -45,7 +45,7 @@ public class Scale extends DForm {
         this.scale = scale;        
     }
 
-    public ActionResult behave(TextObjectGlyph to) {
+    public int behaveBits(TextObjectGlyph to) {
         // Determine the center of to, in the same coordinates as the control
         // points will be.
     	PVector toAbsPos = to.getPositionAbsolute();
@@ -57,19 +57,17 @@ public class Scale extends DForm {
         // multiplication factor to each one, but offset from the center, not
         // the position.
         PVectorListProperty cPs = getControlPoints(to);
-        Iterator<PVectorProperty> i = cPs.iterator();
-        while (i.hasNext()) {
-        	PVectorProperty cP = i.next();
-            // Get the vector from the center of the glyph to the control point.
-        	PVector p = cP.get();
-            p.sub(center);
-            // Scale the control point by the appropriate factor
-            p.mult(scale);
-            // Return p to the original coordinates
-            p.add(center);            
-            cP.set(p);
+        float[] p = getPoints(to);
+        int n = cPs.size() * 3;
+        for (int j = 0; j < n; j += 3) {
+            // Scale the vector from the center of the glyph to the control
+            // point, then return it to the original coordinates.
+            p[j] = (p[j] - center.x) * scale + center.x;
+            p[j+1] = (p[j+1] - center.y) * scale + center.y;
+            p[j+2] = (p[j+2] - center.z) * scale + center.z;
         }
-        return new ActionResult(true, true, false);       
+        cPs.setPoints(p);
+        return ActionResult.pack(true, true, false);       
     }
 
     public float getScale() {
@@ -79,4 +77,18 @@ public class Scale extends DForm {
     public void setScale(float scale) {
         this.scale = scale;
     }
+
+    private static final Set<String> READS =
+        names(TextObjectGlyph.CONTROL_POINTS, TextObject.POSITION,
+              TextObject.ROTATION);
+    private static final Set<String> WRITES =
+        names(TextObjectGlyph.CONTROL_POINTS);
+
+    public Set<String> getReadProperties() {
+        return READS;
+    }
+
+    public Set<String> getWrittenProperties() {
+        return WRITES;
+    }
 }
\ No newline at end of file
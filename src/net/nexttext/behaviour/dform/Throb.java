@@ -19,14 +19,16 @@
 
 package net.nexttext.behaviour.dform;
 
+import net.nexttext.TextObject;
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObjectGlyph;
+import net.nexttext.behaviour.ActionState;
+import net.nexttext.behaviour.ObjectLocalAction;
 import net.nexttext.property.NumberProperty;
 import net.nexttext.property.PVectorListProperty;
-import net.nexttext.property.PVectorProperty;
 
 import java.awt.Rectangle;
-
-import java.util.Iterator;
+import java.util.Set;
 
 import processing.core.PVector;
 
@@ -55,7 +57,12 @@ import processing.core.PVector;
  * frame count, and only update them when a throb is completed.  </p>
  */
 /* $Id$ */
-public class Throb extends DForm {
+public class Throb extends DForm implements ObjectLocalAction {
+
+    private static final PropertyKey<NumberProperty> SCALE =
+        PropertyKey.get("Scale", NumberProperty.class);
+    private static final PropertyKey<NumberProperty> PERIOD =
+        PropertyKey.get("Period", NumberProperty.class);
     
     /**
      * @param scale is amount the object's size will increase, as a multiplier.
@@ -66,18 +73,16 @@ public class Throb extends DForm {
         properties().init("Period", new NumberProperty(period));
     }
 
-    public ActionResult behave(TextObjectGlyph to) {
+    public int behaveBits(TextObjectGlyph to) {
         // Get the cached previous frameCount
-        Integer fCObj = (Integer) (textObjectData.get(to));
-        if (fCObj == null) { fCObj = new Integer(0); }
-        int fC = fCObj.intValue() + 1;
-        textObjectData.put(to, new Integer(fC));
+        ActionState frames = state(to);
+        int fC = ++frames.i;
 
         // The amount to multiply each control point by.  The factor to
         // generate the current frame from the origin, divided by the factor to
         // generate the previous frame from the origin.
-        float scale = ((NumberProperty) properties().get("Scale")).get();
-        long period = ((NumberProperty) properties().get("Period")).getLong();
+        float scale = properties().get(SCALE).get();
+        long period = properties().get(PERIOD).getLong();
 
         float factor = tF(fC, scale, period) / tF(fC - 1, scale, period);
 
@@ -92,26 +97,21 @@ public class Throb extends DForm {
         // multiplication factor to each one, but offset from the center, not
         // the position.
         PVectorListProperty cPs = getControlPoints(to);
-        Iterator<PVectorProperty> i = cPs.iterator();
-        while (i.hasNext()) {
-        	PVectorProperty cP = i.next();
-            // Get the vector from the center of the glyph to the control point.
-        	PVector p = cP.get();
-            p.sub(center);
-
-            // Scale the control point by the appropriate factor
-            p.mult(factor);
-
-            // Return p to the original coordinates
-            p.add(center);
-
-            // Install p as the property
-            cP.set(p);
+        float[] p = getPoints(to);
+        int n = cPs.size() * 3;
+        for (int j = 0; j < n; j += 3) {
+            // Scale the vector from the center of the glyph to the control
+            // point, then return it to the original coordinates.
+            p[j] = (p[j] - center.x) * factor + center.x;
+            p[j+1] = (p[j+1] - center.y) * factor + center.y;
+            p[j+2] = (p[j+2] - center.z) * factor + center.z;
         }
+        // Install the points in the property
+        cPs.setPoints(p);
         if (fC % period == 0) {
-            return new ActionResult(false, false, true);
+            return ActionResult.pack(false, false, true);
         } else {
-            return new ActionResult(false, false, false);
+            return ActionResult.pack(false, false, false);
         }
     }
 
@@ -122,4 +122,18 @@ public class Throb extends DForm {
         float phase = (float)(Math.PI * 2 * frame / period);
         return ((float)(Math.cos(phase - Math.PI) + 1) * (scale - 1 )) + 1;
     }
+
+    private static final Set<String> READS =
+        names(TextObjectGlyph.CONTROL_POINTS, TextObject.POSITION,
+              TextObject.ROTATION);
+    private static final Set<String> WRITES =
+        names(TextObjectGlyph.CONTROL_POINTS);
+
+    public Set<String> getReadProperties() {
+        return READS;
+    }
+
+    public Set<String> getWrittenProperties() {
+        return WRITES;
+    }
 }
@@ -20,6 +20,7 @@
 package net.nexttext.behaviour.physics;
 
 import processing.core.PVector;
+import net.nexttext.PropertyKey;
 import net.nexttext.Locatable;
 import net.nexttext.PLocatableVector;
 import net.nexttext.TextObject;
@@ -33,6 +34,13 @@ import net.nexttext.property.NumberProperty;
  */
 /* $Id$ */
 public class Approach extends PhysicsAction implements TargetingAction {
+
+    private static final PropertyKey<BooleanProperty> CAN_COMPLETE =
+        PropertyKey.get("CanComplete", BooleanProperty.class);
+    private static final PropertyKey<NumberProperty> HIT_RANGE =
+        PropertyKey.get("HitRange", NumberProperty.class);
+    private static final PropertyKey<NumberProperty> SPEED =
+        PropertyKey.get("Speed", NumberProperty.class);
     
     protected Locatable target;
     
@@ -58,7 +66,7 @@ public class Approach extends PhysicsAction implements TargetingAction {
      */
     public Approach( Locatable target, float speed, int hitRange, boolean canComplete ) {
         this(target, speed, hitRange);
-        ((BooleanProperty)properties().get("CanComplete")).set(canComplete);        
+        properties().get(CAN_COMPLETE).set(canComplete);        
     }
     
     /**
@@ -117,7 +125,7 @@ public class Approach extends PhysicsAction implements TargetingAction {
      * 
      * <p>Result is complete if it has reached its target. </p>
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
          
         // get the vector from the abs position to the target               
     	PVector pos = to.getPositionAbsolute();
@@ -127,23 +135,23 @@ public class Approach extends PhysicsAction implements TargetingAction {
 	 	// get the distance from the target as a scalar value
 	 	float dist = dir.mag();
                 
-        if ( dist > ((NumberProperty)properties().get("HitRange")).get() ) {
+        if ( dist > properties().get(HIT_RANGE).get() ) {
             // apply an acceleration in the direction of the target                  
-            dir.mult( (1 / dist) * ((NumberProperty)properties().get("Speed")).get() );
+            dir.mult( (1 / dist) * properties().get(SPEED).get() );
             
             applyAcceleration(to, dir);
             
-            if (((BooleanProperty)properties().get("CanComplete")).get() ) 
-                return new ActionResult(false, true, false);
+            if (properties().get(CAN_COMPLETE).get() ) 
+                return ActionResult.pack(false, true, false);
             else
-                return new ActionResult(false, false, false);
+                return ActionResult.pack(false, false, false);
         }
         // the object is close enough to the target, we are done 
         else{
-            if (((BooleanProperty)properties().get("CanComplete")).get() )                
-                return new ActionResult(true, true, false);
+            if (properties().get(CAN_COMPLETE).get() )                
+                return ActionResult.pack(true, true, false);
             else
-                return new ActionResult(false, false, false);
+                return ActionResult.pack(false, false, false);
         }
     }
 
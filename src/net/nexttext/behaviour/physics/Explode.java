@@ -20,6 +20,7 @@
 package net.nexttext.behaviour.physics;
 
 import processing.core.PVector;
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObject;
 import net.nexttext.property.NumberProperty;
 import net.nexttext.property.PVectorProperty;
@@ -30,6 +31,11 @@ import net.nexttext.property.PVectorProperty;
  */
 /* $Id$ */
 public class Explode extends PhysicsAction {
+
+    private static final PropertyKey<NumberProperty> FORCE =
+        PropertyKey.get("Force", NumberProperty.class);
+    private static final PropertyKey<NumberProperty> ANGULAR_FORCE =
+        PropertyKey.get("AngularForce", NumberProperty.class);
     
     /** 
      * Default constructor. Force is equal to 3.
@@ -51,7 +57,7 @@ public class Explode extends PhysicsAction {
         properties().init("AngularForce", new NumberProperty( angularForce ) );
     }
     
-    public ActionResult behave( TextObject to ) {
+    public int behaveBits(TextObject to) {
         
         // get a push vector in a random direction
     	PVector push = new PVector(1,1);
@@ -60,14 +66,14 @@ public class Explode extends PhysicsAction {
         // negative Y means going out of the screen), we must first negate angle
         // to get clockwise rotation.  
         // the result will be a rotation that is looks clockwise on screen.
-        float angle = -(float)(Math.random()*(2*Math.PI));
+        float angle = -(float)(random(to, 0)*(2*Math.PI));
                
         //rotate
         push.set(push.x * (float)Math.cos(angle) + push.y * (float)Math.sin(angle),
         		 - push.x * (float)Math.sin(angle) + push.y * (float)Math.cos(angle),
         		 0);
         
-        float force = ((NumberProperty)properties().get("Force")).get();        
+        float force = properties().get(FORCE).get();        
         push.mult(force);
         
         // add the push vector to the velocity
@@ -77,10 +83,10 @@ public class Explode extends PhysicsAction {
         velProp.set(vel);
         
         //Add the angular force
-        float angForce = ((NumberProperty)properties().get("AngularForce")).get();   
-        ((NumberProperty)to.getProperty("AngularForce")).set(angForce);
+        float angForce = properties().get(ANGULAR_FORCE).get();   
+        to.getProperty(PhysicsAction.ANGULAR_FORCE).set(angForce);
         
         // all done
-        return new ActionResult(true, true, true);
+        return ActionResult.pack(true, true, true);
     }
 }
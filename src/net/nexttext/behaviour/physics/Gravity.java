@@ -19,25 +19,54 @@
 
 package net.nexttext.behaviour.physics;
 
-import processing.core.PVector;
+import java.util.Set;
+
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObject;
+import net.nexttext.behaviour.BatchAction;
+import net.nexttext.behaviour.ObjectLocalAction;
 import net.nexttext.property.NumberProperty;
 
 /**
  * Applies a constant downwards acceleration to an object.
  */
 /* $Id$ */
-public class Gravity extends PhysicsAction {
+public class Gravity extends PhysicsAction
+    implements BatchAction, ObjectLocalAction {
+
+    private static final PropertyKey<NumberProperty> STRENGTH =
+        PropertyKey.get("Strength", NumberProperty.class);
 
     public Gravity ( float strength ) {
         properties().init( "Strength", new NumberProperty(strength) );
     }
     
-    public ActionResult behave( TextObject to) {
+    public int behaveBits(TextObject to) {
         
-    	PVector acc = new PVector(0, ((NumberProperty)properties().get("Strength")).get() );
-        applyAcceleration(to, acc);
+        applyAcceleration(to, 0, properties().get(STRENGTH).get(), 0);
         
-        return new ActionResult(false, false, false);
+        return ActionResult.pack(false, false, false);
+    }
+
+    /**
+     * Applies the acceleration to a batch of objects, reading the strength
+     * once.
+     */
+    public void behaveBatch(TextObject[] objs, int n, ResultSink sink) {
+        float strength = properties().get(STRENGTH).get();
+        for (int i = 0; i < n; i++) {
+            applyAcceleration(objs[i], 0, strength, 0);
+        }
+    }
+
+    private static final Set<String> READS = names(MASS, FORCE);
+    private static final Set<String> WRITES = names(FORCE);
+
+    public Set<String> getReadProperties() {
+        return READS;
+    }
+
+    public Set<String> getWrittenProperties() {
+        return WRITES;
     }
 }
@@ -19,10 +19,12 @@
 
 package net.nexttext.behaviour.physics;
 
-import processing.core.PVector;
+import java.util.Set;
+
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObject;
+import net.nexttext.behaviour.BatchAction;
 import net.nexttext.property.NumberProperty;
-import net.nexttext.property.PVectorProperty;
 
 /**
  * This is the basic Move; actions from the physics package will have no effect
@@ -36,9 +38,17 @@ import net.nexttext.property.PVectorProperty;
  *
  * <p>Physics actions will typically add to the force on an object on each
  * frame.  </p>
+ *
+ * <p>The objects are moved by the Move's {@link PhysicsWorld}, which steps all
+ * of a batch at once.  </p>
  */
 /* $Id$ */
-public class Move extends PhysicsAction {
+public class Move extends PhysicsAction implements BatchAction {
+
+    private static final PropertyKey<NumberProperty> DRAG =
+        PropertyKey.get("Drag", NumberProperty.class);
+    private static final PropertyKey<NumberProperty> ANGULAR_DRAG =
+        PropertyKey.get("AngularDrag", NumberProperty.class);
 
     public Move() {
         this(0, 0);
@@ -59,44 +69,41 @@ public class Move extends PhysicsAction {
     /**
      * Applies Euler motion to a TextObject.
      */
-    public ActionResult behave(TextObject to) {
-
-        // Determine the acceleration to apply to the object.
-    	PVector acceleration = ((PVectorProperty) to.getProperty("Force")).get();
-        acceleration.mult( 1 / getMass(to).get());
-
-        // Update velocity based on the acceleration
-        PVectorProperty velocity = getVelocity(to);
-        velocity.add(acceleration);
-
-        // Apply the drag to the velocity
-        velocity.scalar(1 - ((NumberProperty) properties.get("Drag")).get());
-
-        // Update position based on velocity
-        getPosition(to).add(velocity.get());
-
-        // Reset the force to zero for the next frame.
-        ((PVectorProperty) to.getProperty("Force")).set(new PVector());
-
+    public int behaveBits(TextObject to) {
+        world.step(to, properties.get(DRAG).get(),
+                   properties.get(ANGULAR_DRAG).get());
+        return ActionResult.pack(false, false, false);
+    }
 
-        // Determine angular acceleration
-        float angAcc = (((NumberProperty) to.getProperty("AngularForce")).get()
-                         / getMass(to).get());
+    /**
+     * Applies Euler motion to a batch of objects, all in one step of the
+     * world.
+     */
+    public void behaveBatch(TextObject[] objs, int n, ResultSink sink) {
+        world.step(objs, n, properties.get(DRAG).get(),
+                   properties.get(ANGULAR_DRAG).get());
+    }
 
-        // Update angular velocity based on the accelaration
-        NumberProperty angVel = getAngularVelocity(to);
-        angVel.add(angAcc);
+    /**
+     * Takes the object out of the world as well.
+     */
+    public void complete(TextObject to) {
+        super.complete(to);
+        world.leave(to);
+    }
 
-        // Apply drag to angular velocity
-        float angDrag = ((NumberProperty) properties.get("AngularDrag")).get();
-        angVel.set(angVel.get() * (1 - angDrag));
+    private static final Set<String> READS =
+        names(MASS, VELOCITY, FORCE, ANGULAR_VELOCITY, ANGULAR_FORCE,
+              TextObject.POSITION, TextObject.ROTATION);
+    private static final Set<String> WRITES =
+        names(VELOCITY, FORCE, ANGULAR_VELOCITY, ANGULAR_FORCE,
+              TextObject.POSITION, TextObject.ROTATION);
 
-        // Update rotation based on angular velocity
-        getRotation(to).add(angVel.get());
+    public Set<String> getReadProperties() {
+        return READS;
+    }
 
-        // Reset the force to zero for the next frame.
-        ((NumberProperty) to.getProperty("AngularForce")).set(0);
-        
-        return new ActionResult(false, false, false);
+    public Set<String> getWrittenProperties() {
+        return WRITES;
     }
 }
@@ -24,6 +24,7 @@ import java.util.Map;
 
 import processing.core.PVector;
 
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.AbstractAction;
 import net.nexttext.property.NumberProperty;
@@ -46,10 +47,44 @@ import net.nexttext.property.Property;
  *
  * <p>Properties to add in the future include elasticity and mass.  A method to
  * get absolute velocity may also be useful.  </p>
+ *
+ * <p>Forces, accelerations and pushes given through the methods here go to
+ * the action's {@link PhysicsWorld} for objects which a {@link Move} is
+ * moving, and only take effect on the object's properties when the Move next
+ * processes it.  For other objects they go straight to the properties.  </p>
  */
 /* $Id$ */
 public abstract class PhysicsAction extends AbstractAction {
 
+    // Keys for the physics properties of TextObjects.
+    public static final PropertyKey<NumberProperty> MASS =
+        PropertyKey.get("Mass", NumberProperty.class);
+    public static final PropertyKey<PVectorProperty> VELOCITY =
+        PropertyKey.get("Velocity", PVectorProperty.class);
+    public static final PropertyKey<PVectorProperty> FORCE =
+        PropertyKey.get("Force", PVectorProperty.class);
+    public static final PropertyKey<NumberProperty> ANGULAR_VELOCITY =
+        PropertyKey.get("AngularVelocity", NumberProperty.class);
+    public static final PropertyKey<NumberProperty> ANGULAR_FORCE =
+        PropertyKey.get("AngularForce", NumberProperty.class);
+
+    protected PhysicsWorld world = PhysicsWorld.getDefault();
+
+    /**
+     * The world which keeps the motion of the objects this action moves.
+     */
+    public PhysicsWorld getWorld() {
+        return world;
+    }
+
+    /**
+     * Use a different world.  This should be done before the action
+     * processes any objects.
+     */
+    public void setWorld(PhysicsWorld world) {
+        this.world = world;
+    }
+
     /**
      * Returns a Map containing a set of Vector3Properties required by all
      * PhysicActions
@@ -73,15 +108,15 @@ public abstract class PhysicsAction extends AbstractAction {
     }
 
     public NumberProperty getMass(TextObject to) {
-        return (NumberProperty) to.getProperty("Mass");
+        return to.getProperty(MASS);
     }
 
     public PVectorProperty getVelocity(TextObject to) {
-        return (PVectorProperty) to.getProperty("Velocity");
+        return to.getProperty(VELOCITY);
     }
 
     public NumberProperty getAngularVelocity(TextObject to) {
-        return (NumberProperty) to.getProperty("AngularVelocity");
+        return to.getProperty(ANGULAR_VELOCITY);
     }
 
     /**
@@ -90,7 +125,12 @@ public abstract class PhysicsAction extends AbstractAction {
      * <p>The mass of the object will affect the resulting acceleration.  </p>
      */
     public void applyForce(TextObject to, PVector force) {
-    	PVectorProperty totalForce = (PVectorProperty) to.getProperty("Force");
+        int s = world.slot(to);
+        if (s >= 0) {
+            world.addForce(s, force.x, force.y, force.z);
+            return;
+        }
+    	PVectorProperty totalForce = to.getProperty(FORCE);
         totalForce.add(force);
     }
 
@@ -100,15 +140,36 @@ public abstract class PhysicsAction extends AbstractAction {
      * <p>This acceleration is independent of the mass of the object.  </p>
      */
     public void applyAcceleration(TextObject to, PVector acceleration) {
-    	PVectorProperty totalForce = (PVectorProperty) to.getProperty("Force");
-
-    	PVector newForce = new PVector(acceleration.x, acceleration.y, acceleration.z);
-        newForce.mult(getMass(to).get());
+        applyAcceleration(to, acceleration.x, acceleration.y, acceleration.z);
+    }
 
-        PVector newTotalForce = totalForce.get();
-        newTotalForce.add(newForce);
+    /**
+     * Applies an acceleration given by its components to a TextObject.
+     */
+    public void applyAcceleration(TextObject to, float x, float y, float z) {
+        int s = world.slot(to);
+        if (s >= 0) {
+            world.addAcceleration(s, x, y, z);
+            return;
+        }
+    	PVectorProperty totalForce = to.getProperty(FORCE);
+
+        float mass = getMass(to).get();
+        totalForce.set(new PVector(totalForce.getX() + x * mass,
+                                   totalForce.getY() + y * mass,
+                                   totalForce.getZ() + z * mass));
+    }
 
-        totalForce.set(newTotalForce);
+    /**
+     * Adds to the velocity of a TextObject, regardless of its mass.
+     */
+    public void applyVelocity(TextObject to, PVector velocity) {
+        int s = world.slot(to);
+        if (s >= 0) {
+            world.addVelocity(s, velocity.x, velocity.y, velocity.z);
+            return;
+        }
+        getVelocity(to).add(velocity);
     }
 
     /**
@@ -118,8 +179,12 @@ public abstract class PhysicsAction extends AbstractAction {
      * acceleration.  </p>
      */
     public void applyAngularForce(TextObject to, float angularForce) {
-        NumberProperty totalAngularForce =
-            (NumberProperty) to.getProperty("AngularForce");
+        int s = world.slot(to);
+        if (s >= 0) {
+            world.addAngularForce(s, angularForce);
+            return;
+        }
+        NumberProperty totalAngularForce = to.getProperty(ANGULAR_FORCE);
         totalAngularForce.set(totalAngularForce.get() + angularForce);
     }
 
@@ -129,8 +194,12 @@ public abstract class PhysicsAction extends AbstractAction {
      * <p>This acceleration is independent of the mass of the object.  </p>
      */
     public void applyAngularAcceleration(TextObject to, float angAcc) {
-        NumberProperty totalAngForce =
-            (NumberProperty) to.getProperty("AngularForce");
+        int s = world.slot(to);
+        if (s >= 0) {
+            world.addAngularAcceleration(s, angAcc);
+            return;
+        }
+        NumberProperty totalAngForce = to.getProperty(ANGULAR_FORCE);
 
         float newAngForce = angAcc * getMass(to).get();
 
@@ -0,0 +1,279 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext.behaviour.physics;
+
+import processing.core.PVector;
+
+import net.nexttext.TextObject;
+import net.nexttext.behaviour.AbstractAction;
+import net.nexttext.behaviour.ActionState;
+import net.nexttext.property.NumberProperty;
+import net.nexttext.property.PVectorProperty;
+
+/**
+ * The physical state of the objects being moved, kept in arrays.
+ *
+ * <p>An object joins a world the first time a {@link Move} using the world
+ * processes it, and leaves when it is removed from the Move.  While it is in
+ * the world, the forces, accelerations and pushes which {@link
+ * PhysicsAction}s give it are added up in the world's arrays rather than in
+ * its properties, so they cost neither an allocation nor a change event.  On
+ * each step the Move reads the mass and velocities of its objects, works out
+ * the motion of all of them in one loop over the arrays, and then writes
+ * each object's Position, Rotation and velocities back once.  </p>
+ *
+ * <p>The properties remain the record of an object's motion between steps,
+ * so actions which set the Velocity or Force properties directly still work.
+ * Forces left in the Force and AngularForce properties are added to those
+ * in the world.  </p>
+ *
+ * <p>All physics actions use the {@link #getDefault() default} world unless
+ * they are given another with {@link PhysicsAction#setWorld}.  </p>
+ */
+/* $Id$ */
+public class PhysicsWorld {
+
+    private static final PhysicsWorld defaultWorld = new PhysicsWorld();
+
+    /**
+     * The world used by physics actions which haven't been given one.
+     */
+    public static PhysicsWorld getDefault() {
+        return defaultWorld;
+    }
+
+    // Objects find their slot through the state the world keeps on them.
+    private final int id = AbstractAction.newId();
+
+    private TextObject[] objects = new TextObject[16];
+    private int size = 0;
+
+    // What's been applied to each object since the last step.
+    private float[] fx = new float[16], fy = new float[16], fz = new float[16];
+    private float[] ax = new float[16], ay = new float[16], az = new float[16];
+    private float[] dvx = new float[16], dvy = new float[16], dvz = new float[16];
+    private float[] torque = new float[16], angAcc = new float[16];
+
+    // The motion of each object, read from its properties when it is stepped.
+    private float[] mass = new float[16];
+    private float[] vx = new float[16], vy = new float[16], vz = new float[16];
+    private float[] angVel = new float[16];
+
+    // The slots of the objects being stepped, in order, and how many there
+    // were last time.
+    private int[] stepping = new int[16];
+    private int stepped = 0;
+    private TextObject[] one = new TextObject[1];
+    private PVector v = new PVector();
+
+    /**
+     * The number of objects in the world.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * The slot of an object in this world, or -1 if it isn't in it.
+     */
+    int slot(TextObject to) {
+        ActionState state = to.getActionState(id);
+        return state == null ? -1 : state.i;
+    }
+
+    /**
+     * Add an object to the world, and return its slot.
+     */
+    synchronized int join(TextObject to) {
+        int s = slot(to);
+        if (s >= 0) return s;
+        if (size == objects.length) {
+            grow(size * 2);
+        }
+        s = size++;
+        ActionState state = new ActionState(id);
+        state.i = s;
+        to.addActionState(state);
+        objects[s] = to;
+        clear(s);
+        return s;
+    }
+
+    /**
+     * Remove an object from the world.  Whatever was applied to it since the
+     * last step is lost.
+     */
+    synchronized void leave(TextObject to) {
+        ActionState state = to.removeActionState(id);
+        if (state == null) return;
+        int s = state.i;
+        int last = --size;
+        if (s != last) {
+            TextObject moved = objects[last];
+            objects[s] = moved;
+            fx[s] = fx[last]; fy[s] = fy[last]; fz[s] = fz[last];
+            ax[s] = ax[last]; ay[s] = ay[last]; az[s] = az[last];
+            dvx[s] = dvx[last]; dvy[s] = dvy[last]; dvz[s] = dvz[last];
+            torque[s] = torque[last]; angAcc[s] = angAcc[last];
+            moved.getActionState(id).i = s;
+        }
+        objects[last] = null;
+    }
+
+    void addForce(int s, float x, float y, float z) {
+        fx[s] += x; fy[s] += y; fz[s] += z;
+    }
+
+    void addAcceleration(int s, float x, float y, float z) {
+        ax[s] += x; ay[s] += y; az[s] += z;
+    }
+
+    void addVelocity(int s, float x, float y, float z) {
+        dvx[s] += x; dvy[s] += y; dvz[s] += z;
+    }
+
+    void addAngularForce(int s, float f) {
+        torque[s] += f;
+    }
+
+    void addAngularAcceleration(int s, float a) {
+        angAcc[s] += a;
+    }
+
+    /**
+     * Move one object, joining it to the world if it isn't in it yet.
+     *
+     * @see #step(TextObject[], int, float, float)
+     */
+    synchronized void step(TextObject to, float drag, float angularDrag) {
+        one[0] = to;
+        step(one, 1, drag, angularDrag);
+        one[0] = null;
+    }
+
+    /**
+     * Apply Euler motion to some objects, joining them to the world if they
+     * aren't in it yet.
+     *
+     * <p>Drag is the fraction of the velocity which is lost on each
+     * step.  </p>
+     */
+    synchronized void step(TextObject[] objs, int n, float drag, float angularDrag) {
+        if (stepping.length < n) {
+            int[] grown = new int[Math.max(n, stepping.length * 2)];
+            System.arraycopy(stepping, 0, grown, 0, stepped);
+            stepping = grown;
+        }
+
+        // Read the motion, and any forces put straight into the properties.
+        for (int k = 0; k < n; k++) {
+            // Objects usually come in the same order as the last step, so
+            // try the same slot before looking it up.
+            TextObject to = objs[k];
+            int s = stepping[k];
+            if (k >= stepped || s >= size || objects[s] != to) {
+                s = slot(to);
+                if (s < 0) s = join(to);
+                stepping[k] = s;
+            }
+
+            mass[s] = to.getProperty(PhysicsAction.MASS).get();
+            PVectorProperty velocity = to.getProperty(PhysicsAction.VELOCITY);
+            vx[s] = velocity.getX();
+            vy[s] = velocity.getY();
+            vz[s] = velocity.getZ();
+            angVel[s] = to.getProperty(PhysicsAction.ANGULAR_VELOCITY).get();
+
+            PVectorProperty force = to.getProperty(PhysicsAction.FORCE);
+            if (force.getX() != 0 || force.getY() != 0 || force.getZ() != 0) {
+                addForce(s, force.getX(), force.getY(), force.getZ());
+                v.set(0, 0, 0);
+                force.set(v);
+            }
+            NumberProperty angForce = to.getProperty(PhysicsAction.ANGULAR_FORCE);
+            if (angForce.get() != 0) {
+                torque[s] += angForce.get();
+                angForce.set(0);
+            }
+        }
+
+        // Work out the new velocities, and reset what was applied.
+        float keep = 1 - drag;
+        float angKeep = 1 - angularDrag;
+        for (int k = 0; k < n; k++) {
+            int s = stepping[k];
+            float invMass = 1 / mass[s];
+            vx[s] = (vx[s] + dvx[s] + fx[s] * invMass + ax[s]) * keep;
+            vy[s] = (vy[s] + dvy[s] + fy[s] * invMass + ay[s]) * keep;
+            vz[s] = (vz[s] + dvz[s] + fz[s] * invMass + az[s]) * keep;
+            angVel[s] = (angVel[s] + torque[s] / mass[s] + angAcc[s]) * angKeep;
+            clear(s);
+        }
+
+        // Write the motion back, leaving alone what hasn't changed.
+        for (int k = 0; k < n; k++) {
+            TextObject to = objs[k];
+            int s = stepping[k];
+            v.set(vx[s], vy[s], vz[s]);
+            PVectorProperty velocity = to.getProperty(PhysicsAction.VELOCITY);
+            if (velocity.getX() != v.x || velocity.getY() != v.y ||
+                velocity.getZ() != v.z) {
+                velocity.set(v);
+            }
+            if (v.x != 0 || v.y != 0 || v.z != 0) {
+                to.getProperty(TextObject.POSITION).add(v);
+            }
+            NumberProperty av = to.getProperty(PhysicsAction.ANGULAR_VELOCITY);
+            if (av.get() != angVel[s]) {
+                av.set(angVel[s]);
+            }
+            if (angVel[s] != 0) {
+                to.getProperty(TextObject.ROTATION).add(angVel[s]);
+            }
+        }
+        stepped = n;
+    }
+
+    private void clear(int s) {
+        fx[s] = 0; fy[s] = 0; fz[s] = 0;
+        ax[s] = 0; ay[s] = 0; az[s] = 0;
+        dvx[s] = 0; dvy[s] = 0; dvz[s] = 0;
+        torque[s] = 0; angAcc[s] = 0;
+    }
+
+    private void grow(int capacity) {
+        TextObject[] grown = new TextObject[capacity];
+        System.arraycopy(objects, 0, grown, 0, size);
+        objects = grown;
+        fx = grow(fx, capacity); fy = grow(fy, capacity); fz = grow(fz, capacity);
+        ax = grow(ax, capacity); ay = grow(ay, capacity); az = grow(az, capacity);
+        dvx = grow(dvx, capacity); dvy = grow(dvy, capacity); dvz = grow(dvz, capacity);
+        torque = grow(torque, capacity); angAcc = grow(angAcc, capacity);
+        mass = grow(mass, capacity);
+        vx = grow(vx, capacity); vy = grow(vy, capacity); vz = grow(vz, capacity);
+        angVel = grow(angVel, capacity);
+    }
+
+    private float[] grow(float[] a, int capacity) {
+        float[] grown = new float[capacity];
+        System.arraycopy(a, 0, grown, 0, size);
+        return grown;
+    }
+}
@@ -19,8 +19,13 @@
 
 package net.nexttext.behaviour.physics;
 
+import java.util.Set;
+
 import processing.core.PVector;
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObject;
+import net.nexttext.behaviour.BatchAction;
+import net.nexttext.behaviour.ObjectLocalAction;
 import net.nexttext.property.NumberProperty;
 import net.nexttext.property.PVectorProperty;
 
@@ -28,7 +33,13 @@ import net.nexttext.property.PVectorProperty;
  * This action gives the object a one-time velocity push in a given
  * direction.
  */
-public class Push extends PhysicsAction {
+public class Push extends PhysicsAction
+    implements BatchAction, ObjectLocalAction {
+
+    private static final PropertyKey<PVectorProperty> DIRECTION =
+        PropertyKey.get("Direction", PVectorProperty.class);
+    private static final PropertyKey<NumberProperty> FORCE =
+        PropertyKey.get("Force", NumberProperty.class);
 
     /** 
      * Default constructor. Force is equal to 3.
@@ -54,21 +65,44 @@ public class Push extends PhysicsAction {
         properties().init("Force", new NumberProperty( force ) );
     }
 
-    public ActionResult behave( TextObject to ) {
+    public int behaveBits(TextObject to) {
         
         // get a push vector in a random direction
-    	PVector push = ((PVectorProperty)properties.get("Direction")).get();
-        float force = ((NumberProperty)properties().get("Force")).get();
+    	PVector push = properties.get(DIRECTION).get();
+        float force = properties().get(FORCE).get();
         push.normalize();
         push.mult(force);
         
         // add the push vector to the velocity
-        PVectorProperty velProp = getVelocity(to);
-        PVector vel = velProp.get();
-        vel.add(push);
-        velProp.set(vel);
+        applyVelocity(to, push);
                
         // all done
-        return new ActionResult(true, true, true);
+        return ActionResult.pack(true, true, true);
+    }
+
+    /**
+     * Pushes a batch of objects, working out the push vector once.  Every
+     * object is complete afterwards.
+     */
+    public void behaveBatch(TextObject[] objs, int n, ResultSink sink) {
+    	PVector push = properties.get(DIRECTION).get();
+        push.normalize();
+        push.mult(properties().get(FORCE).get());
+        int done = ActionResult.pack(true, true, true);
+        for (int i = 0; i < n; i++) {
+            applyVelocity(objs[i], push);
+            sink.result(i, done);
+        }
+    }
+
+    private static final Set<String> READS = names(VELOCITY);
+    private static final Set<String> WRITES = names(VELOCITY);
+
+    public Set<String> getReadProperties() {
+        return READS;
+    }
+
+    public Set<String> getWrittenProperties() {
+        return WRITES;
     }
 }
@@ -19,13 +19,20 @@
 
 package net.nexttext.behaviour.physics;
 
+import java.util.Set;
+
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObject;
 import net.nexttext.property.NumberProperty;
+import net.nexttext.behaviour.ObjectLocalAction;
 
 /**
  * This action gives the object a one-time angular spin.
  */
-public class Spin extends PhysicsAction {
+public class Spin extends PhysicsAction implements ObjectLocalAction {
+
+    private static final PropertyKey<NumberProperty> FORCE =
+        PropertyKey.get("Force", NumberProperty.class);
     /** 
      * Default constructor. Angular force is equal to 0.1 rad.
      */
@@ -53,14 +60,25 @@ public class Spin extends PhysicsAction {
      * Apply behaviour to text object.
      * @param to text object
      */
-    public ActionResult behave( TextObject to ) {
+    public int behaveBits(TextObject to) {
         // get a push vector in a random direction
-        float force = ((NumberProperty)properties().get("Force")).get();
+        float force = properties().get(FORCE).get();
         
         // apply the angular force
         this.applyAngularForce(to, force);
                
         // all done
-        return new ActionResult(true, true, true);
+        return ActionResult.pack(true, true, true);
+    }
+
+    private static final Set<String> READS = names(ANGULAR_FORCE);
+    private static final Set<String> WRITES = names(ANGULAR_FORCE);
+
+    public Set<String> getReadProperties() {
+        return READS;
+    }
+
+    public Set<String> getWrittenProperties() {
+        return WRITES;
     }
 }
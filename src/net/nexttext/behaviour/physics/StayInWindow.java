@@ -94,7 +94,7 @@ public class StayInWindow extends PhysicsAction implements Action {
      * <p>The returned ActionResult will include an event when the object
      * encountered one of the window's edges.  </p>
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
     	// see if the object is inside the window using the object's
         // bounding box.
         Rectangle bb = to.getBoundingPolygon().getBounds();
@@ -102,7 +102,7 @@ public class StayInWindow extends PhysicsAction implements Action {
 
         if ( offset.mag() == 0 ) {
             // if there is no offset then the object is inside, so do nothing
-            return new ActionResult(false, false, false);
+            return ActionResult.pack(false, false, false);
         }
         else {
             // translate the object so its inside
@@ -123,7 +123,7 @@ public class StayInWindow extends PhysicsAction implements Action {
             }
             velProp.set( vel );
             
-            return new ActionResult(false, false, true);
+            return ActionResult.pack(false, false, true);
         }
     }
  
@@ -24,6 +24,7 @@ import java.awt.Shape;
 
 import processing.core.PVector;
 
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObject;
 import net.nexttext.property.NumberProperty;
 import net.nexttext.property.PVectorProperty;
@@ -35,6 +36,9 @@ import net.nexttext.property.PVectorProperty;
  */
 /* $Id$ */
 public class StayInside extends PhysicsAction {
+
+    private static final PropertyKey<NumberProperty> JIGGLE =
+        PropertyKey.get("Jiggle", NumberProperty.class);
     
     protected Shape shape;
     
@@ -63,7 +67,7 @@ public class StayInside extends PhysicsAction {
      * <p>The returned ActionResult will include an event each time the object
      * is jiggled to keep it inside.  </p>
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
 
         Rectangle toBB = to.getBoundingPolygon().getBounds();
         
@@ -93,15 +97,15 @@ public class StayInside extends PhysicsAction {
             } else if (xBottom && !xTop) {
                 jiggle(false, 1, posProp, velProp);
             }
-            return new ActionResult(false, false, true);
+            return ActionResult.pack(false, false, true);
         } else {
-            return new ActionResult(false, false, false);
+            return ActionResult.pack(false, false, false);
         }
     }
 
     //  Jiggle a word within the target.
     private void jiggle(boolean xAxis, int dir, PVectorProperty pos, PVectorProperty vel) {
-        float jiggle = ((NumberProperty)properties().get("Jiggle")).get();
+        float jiggle = properties().get(JIGGLE).get();
         // Move it back within the object
         pos.add( xAxis ? new PVector(dir * jiggle, 0) : new PVector(0, dir * jiggle) );
         // Scale back the velocity by max(half,jiggle) if it's moving out
@@ -30,7 +30,7 @@ import net.nexttext.property.PVectorProperty;
 /* $Id$ */
 public class Stop extends PhysicsAction {
 
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
 
     	PVectorProperty velocity = getVelocity(to);
         velocity.set(new PVector());
@@ -38,6 +38,6 @@ public class Stop extends PhysicsAction {
         NumberProperty angVel = getAngularVelocity(to);
         angVel.set(0);
 
-        return new ActionResult(true, true, false);
+        return ActionResult.pack(true, true, false);
     }
 }
@@ -20,7 +20,9 @@
 package net.nexttext.behaviour.standard;
 
 import java.awt.Color;
+import java.util.Set;
 
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.AbstractAction;
 import net.nexttext.property.ColorProperty;
@@ -33,6 +35,15 @@ import processing.core.PApplet;
 /* $Id$ */
 public class Colorize extends AbstractAction {
      
+    private static final PropertyKey<ColorProperty> COLOR_FILL =
+        PropertyKey.get("ColorFill", ColorProperty.class);
+    private static final PropertyKey<NumberProperty> SPEED_FILL =
+        PropertyKey.get("SpeedFill", NumberProperty.class);
+    private static final PropertyKey<ColorProperty> COLOR_STROKE =
+        PropertyKey.get("ColorStroke", ColorProperty.class);
+    private static final PropertyKey<NumberProperty> SPEED_STROKE =
+        PropertyKey.get("SpeedStroke", NumberProperty.class);
+
     protected boolean applyToFill;
     protected boolean applyToStroke;
     
@@ -344,63 +355,44 @@ public class Colorize extends AbstractAction {
     
     //BEHAVE FUNCTION -------------------------------------------------------------------------
     
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
         
         boolean doneFill = false;
         boolean doneStroke = false;
         
         if (applyToFill) {
             doneFill =  fadeTo(to.getColor(), 
-                    ((ColorProperty)properties().get("ColorFill")).get(), 
-                    (int)((NumberProperty)properties().get("SpeedFill")).get());
+                    properties().get(COLOR_FILL).getARGB(), 
+                    (int)properties().get(SPEED_FILL).get());
         }
         
         if (applyToStroke) {
             doneStroke =  fadeTo(to.getStrokeColor(), 
-                    ((ColorProperty)properties().get("ColorStroke")).get(), 
-                    (int)((NumberProperty)properties().get("SpeedStroke")).get());
+                    properties().get(COLOR_STROKE).getARGB(), 
+                    (int)properties().get(SPEED_STROKE).get());
         }
         
         if ((applyToFill==doneFill) && (applyToStroke==doneStroke))
-            return new ActionResult (true, true, false);
+            return ActionResult.pack(true, true, false);
         
-        return new ActionResult(false, true, false);
+        return ActionResult.pack(false, true, false);
     }
     
     protected boolean fadeTo( ColorProperty currentProp, Color target, int speed ) {
-        
-        Color currentCol = currentProp.get();
-        
-        int tR = target.getRed();
-        int tG = target.getGreen();
-        int tB = target.getBlue();
-        int tA = target.getAlpha();
-
-        int newR = fadeComponentTo( currentCol.getRed(),   tR, speed );
-        int newG = fadeComponentTo( currentCol.getGreen(), tG, speed );
-        int newB = fadeComponentTo( currentCol.getBlue(),  tB, speed );
-        int newA = fadeComponentTo( currentCol.getAlpha(), tA, speed );
-
-        currentProp.set(new Color(newR, newG, newB, newA));
-
-        return (newR == tR && newG == tG && newB == tB && newA == tA);
+        return fadeTo(currentProp, target.getRGB(), speed);
     }
-    
-    private int fadeComponentTo( int component, int target, int speed ) {
+
+    /**
+     * Step each channel of the colour towards the packed ARGB target.
+     *
+     * @return true once the target has been reached
+     */
+    protected boolean fadeTo( ColorProperty currentProp, int target, int speed ) {
         
-        if ( component < target ) {
-            component += speed;
-            if ( component > target ) {
-                component = target;
-            }
-        }
-        else {
-            component -= speed;
-            if ( component < target ) {
-                component = target;
-            }
-        }
-        return component;
+        int newCol = ColorProperty.step(currentProp.getARGB(), target, speed);
+        currentProp.setARGB(newCol);
+
+        return newCol == target;
     }
     
   //SET FUNCTIONS ----------------------------------------------------------------------------
@@ -652,5 +644,18 @@ public class Colorize extends AbstractAction {
         ((NumberProperty)properties().get("SpeedStroke")).set(strokeSpeed);
     }
  
+
+    private static final Set<String> READS =
+        names(TextObject.COLOR, TextObject.STROKE_COLOR);
+    private static final Set<String> WRITES =
+        names(TextObject.COLOR, TextObject.STROKE_COLOR);
+
+    public Set<String> getReadProperties() {
+        return READS;
+    }
+
+    public Set<String> getWrittenProperties() {
+        return WRITES;
+    }
 }
 
@@ -21,7 +21,6 @@ package net.nexttext.behaviour.standard;
 
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.AbstractAction;
-import net.nexttext.behaviour.Action;
 
 /**
  * Does nothing to a TextObject.
@@ -29,7 +28,7 @@ import net.nexttext.behaviour.Action;
 /* $Id$ */
 public class DoNothing extends AbstractAction {
     
-    ActionResult result;
+    int result;
 
     /**
      * Do nothing, returning the default ActionResult(false, false, false).
@@ -42,13 +41,13 @@ public class DoNothing extends AbstractAction {
      * Do nothing, returning an ActionResult constructed with the given values.
      */
     public DoNothing(boolean complete, boolean canComplete, boolean event) {
-        this.result = new Action.ActionResult(complete, canComplete, event);
+        this.result = ActionResult.pack(complete, canComplete, event);
     }
 
     /**
      * Does nothing to the TextObject.
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
         return result;
     }
 }
@@ -19,8 +19,9 @@
 
 package net.nexttext.behaviour.standard;
 
-import java.awt.Color;
+import java.util.Set;
 
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.AbstractAction;
 import net.nexttext.property.ColorProperty;
@@ -34,6 +35,15 @@ import net.nexttext.property.NumberProperty;
  */
 /* $Id$ */
 public class FadeTo extends AbstractAction {
+
+    private static final PropertyKey<NumberProperty> ALPHA_FILL =
+        PropertyKey.get("AlphaFill", NumberProperty.class);
+    private static final PropertyKey<NumberProperty> SPEED_FILL =
+        PropertyKey.get("SpeedFill", NumberProperty.class);
+    private static final PropertyKey<NumberProperty> ALPHA_STROKE =
+        PropertyKey.get("AlphaStroke", NumberProperty.class);
+    private static final PropertyKey<NumberProperty> SPEED_STROKE =
+        PropertyKey.get("SpeedStroke", NumberProperty.class);
     
     private boolean applyToFill = true;
     private boolean applyToStroke = false;
@@ -110,7 +120,7 @@ public class FadeTo extends AbstractAction {
      * <p>The returned ActionResult will set complete when the alpha value has
      * been reached, and will never return events.  </p>
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
             
         ColorProperty cProp;
         boolean doneFill = false;
@@ -120,8 +130,8 @@ public class FadeTo extends AbstractAction {
             // retrieve this object's colour
             cProp = to.getColor();    
             // retrieve this action's properties
-            int alphaFill = (int)((NumberProperty)(properties().get("AlphaFill"))).get();
-            int speedFill = (int)((NumberProperty)(properties().get("SpeedFill"))).get();
+            int alphaFill = (int)properties().get(ALPHA_FILL).get();
+            int speedFill = (int)properties().get(SPEED_FILL).get();
             // fade the fill colour
             doneFill = fadeTo(cProp, alphaFill, speedFill);
         }
@@ -129,38 +139,41 @@ public class FadeTo extends AbstractAction {
             // retrieve this object's stroke colour
             cProp = to.getStrokeColor(); 
             // retrieve this action's properties
-            int alphaStroke = (int)((NumberProperty)(properties().get("AlphaStroke"))).get();
-            int speedStroke = (int)((NumberProperty)(properties().get("SpeedStroke"))).get();
+            int alphaStroke = (int)properties().get(ALPHA_STROKE).get();
+            int speedStroke = (int)properties().get(SPEED_STROKE).get();
             // fade the stroke colour
             doneStroke = fadeTo(cProp, alphaStroke, speedStroke);
         }
         
         if ((applyToFill==doneFill) && (applyToStroke==doneStroke))
-            return new ActionResult(true, true, true);
+            return ActionResult.pack(true, true, true);
         
-        return new ActionResult(false, true, false);
+        return ActionResult.pack(false, true, false);
     }
     
     private boolean fadeTo (ColorProperty prop, int fadeTo, int speed) {
         
-        Color color = prop.get();
-        int a = color.getAlpha();
-        
-        if ( a < fadeTo ) { 
-            a += speed;
-        	if ( a > fadeTo ) a = fadeTo; // check if we passed it             
-    	}
-    	else if ( a > fadeTo ) { 
-	    a -= speed;           
-	    	if ( a < fadeTo ) a = fadeTo; // check if we passed it
-    	}
+        int argb = prop.getARGB();
+        // step the alpha towards fadeTo, without passing it
+        int a = ColorProperty.stepChannel(ColorProperty.alpha(argb), fadeTo, speed);
         
         // update the color property 
-        Color newColor = new Color(color.getRed(), color.getGreen(), 
-                                    color.getBlue(), a);    	
-        prop.set( newColor );
+        prop.setARGB( ColorProperty.withAlpha(argb, a) );
         
         return a == fadeTo;
     }
+
+    private static final Set<String> READS =
+        names(TextObject.COLOR, TextObject.STROKE_COLOR);
+    private static final Set<String> WRITES =
+        names(TextObject.COLOR, TextObject.STROKE_COLOR);
+
+    public Set<String> getReadProperties() {
+        return READS;
+    }
+
+    public Set<String> getWrittenProperties() {
+        return WRITES;
+    }
 }
      
@@ -68,13 +68,13 @@ public class Follow extends AbstractAction implements TargetingAction {
 	 * Apply the action to a TextObject.
 	 * @param to the affected text object
 	 */
-	public ActionResult behave(TextObject to) {	
+	public int behaveBits(TextObject to) {	
 		//if we never checked the followed object location then
 		//store it for next time
 		if ((lastLocation == null) || (to.getBook().getFrameCount()-lastFrame > 1)) {
 			lastLocation = followed.getLocation();
 			lastFrame = to.getBook().getFrameCount();	
-			return new ActionResult(false, false, false);
+			return ActionResult.pack(false, false, false);
 		}
 		
 		//calculate the followed object's movement since last time
@@ -89,6 +89,6 @@ public class Follow extends AbstractAction implements TargetingAction {
        	lastLocation.add(currLocation);
 		lastFrame = to.getBook().getFrameCount();
 		
-        return new ActionResult(false, false, false);		
+        return ActionResult.pack(false, false, false);		
 	}
 }
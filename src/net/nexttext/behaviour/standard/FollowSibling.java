@@ -65,7 +65,7 @@ public class FollowSibling extends AbstractAction {
     	this.action = action;
     }
     
-    public ActionResult behave( TextObject to ) {
+    public int behaveBits(TextObject to) {
         
         TextObject sibling = null;
         if (siblingDirection == PConstants.LEFT) to.getLeftSibling();
@@ -73,9 +73,9 @@ public class FollowSibling extends AbstractAction {
         
         if ( sibling != null ) {   
              action.setTarget( sibling );
-             return action.behave(to);
+             return behaveBits(action, to);
         }
-        return new ActionResult(false, false, false);
+        return ActionResult.pack(false, false, false);
     }
 
     public Map<String, Property> getRequiredProperties() {
@@ -44,9 +44,9 @@ public class Kern extends AbstractAction {
         this.kern = kern;
     }
     
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
         if (to instanceof TextObjectGlyph) {
-            return new ActionResult(true, true, false);
+            return ActionResult.pack(true, true, false);
         }        
         TextObjectGroup tog = (TextObjectGroup)to;
         TextObject left = tog.getLeftMostChild();
@@ -71,6 +71,6 @@ public class Kern extends AbstractAction {
             left = right;            
             right = right.getRightSibling();            
         }
-        return new ActionResult(true, true, false);
+        return ActionResult.pack(true, true, false);
     }
 }
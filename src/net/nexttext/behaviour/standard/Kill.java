@@ -47,9 +47,9 @@ public class Kill extends AbstractAction {
      * @throws NullPointerException if the object has not been attached to 
      * a Book. 
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
         // find the TextObject root
         to.getBook().removeObject(to);            
-        return new ActionResult(true, true, false);
+        return ActionResult.pack(true, true, false);
     }
 }
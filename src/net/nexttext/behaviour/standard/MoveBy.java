@@ -19,11 +19,14 @@
 
 package net.nexttext.behaviour.standard;
 
+import java.util.Set;
+
 import processing.core.PVector;
 import net.nexttext.Locatable;
 import net.nexttext.PLocatableVector;
 import net.nexttext.TextObject;
 import net.nexttext.behaviour.AbstractAction;
+import net.nexttext.behaviour.BatchAction;
 import net.nexttext.behaviour.TargetingAction;
 import net.nexttext.property.PVectorProperty;
 
@@ -35,7 +38,8 @@ import net.nexttext.property.PVectorProperty;
  * used.</p>
  */
 /* $Id$ */
-public class MoveBy extends AbstractAction implements TargetingAction {
+public class MoveBy extends AbstractAction
+    implements TargetingAction, BatchAction {
 
     protected Locatable offset;
 
@@ -51,10 +55,21 @@ public class MoveBy extends AbstractAction implements TargetingAction {
     	this.offset = new PLocatableVector(offset);
     }
     
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
     	PVectorProperty posProp = getPosition(to);
        	posProp.add(offset.getLocation());
-        return new ActionResult(false, false, false);
+        return ActionResult.pack(false, false, false);
+    }
+
+    /**
+     * Moves a batch of objects by the offset, which is read once for the
+     * whole batch.
+     */
+    public void behaveBatch(TextObject[] objs, int n, ResultSink sink) {
+        PVector amount = offset.getLocation();
+        for (int i = 0; i < n; i++) {
+            getPosition(objs[i]).add(amount);
+        }
     }
 
     /**
@@ -84,4 +99,16 @@ public class MoveBy extends AbstractAction implements TargetingAction {
     public void setTarget(Locatable offset) {
         this.offset = offset;
    }
+
+    private static final Set<String> READS =
+        names(TextObject.POSITION, TextObject.ROTATION);
+    private static final Set<String> WRITES = names(TextObject.POSITION);
+
+    public Set<String> getReadProperties() {
+        return READS;
+    }
+
+    public Set<String> getWrittenProperties() {
+        return WRITES;
+    }
 }
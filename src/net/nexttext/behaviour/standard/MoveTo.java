@@ -19,7 +19,10 @@
 
 package net.nexttext.behaviour.standard;
 
+import java.util.Set;
+
 import processing.core.PVector;
+import net.nexttext.PropertyKey;
 import net.nexttext.Locatable;
 import net.nexttext.PLocatableVector;
 import net.nexttext.TextObject;
@@ -34,6 +37,9 @@ import net.nexttext.property.PVectorProperty;
 /* $Id$ */
 public class MoveTo extends AbstractAction implements TargetingAction {
 
+    private static final PropertyKey<NumberProperty> SPEED =
+        PropertyKey.get("Speed", NumberProperty.class);
+
     protected Locatable target;
 
     /**
@@ -100,8 +106,8 @@ public class MoveTo extends AbstractAction implements TargetingAction {
      *
      * <p>Result is complete if it has reached its target. </p>
      */
-    public ActionResult behave(TextObject to) {
-        float speed = ((NumberProperty)properties().get("Speed")).get();
+    public int behaveBits(TextObject to) {
+        float speed = properties().get(SPEED).get();
 
         // get the vector from the position to the target
         PVector pos = to.getPositionAbsolute();
@@ -110,17 +116,17 @@ public class MoveTo extends AbstractAction implements TargetingAction {
         PVector newDir = target.getLocation();
 	 	newDir.sub(pos);
 
-        ActionResult result = new ActionResult(true, true, false);
+        boolean complete = true;
 
 	 	// Scale the vector down to the speed if needed.
         if (newDir.mag() > speed) {
             newDir.normalize();
             newDir.mult(speed);
-            result.complete = false;
+            complete = false;
         }
         PVectorProperty posProp = getPosition(to);
         posProp.add(newDir);
-        return result;
+        return ActionResult.pack(complete, true, false);
     }
 
     /**
@@ -150,4 +156,16 @@ public class MoveTo extends AbstractAction implements TargetingAction {
     public void setTarget( PVector target ) {
     	setTarget(new PLocatableVector(target));
     }
+
+    private static final Set<String> READS =
+        names(TextObject.POSITION, TextObject.ROTATION);
+    private static final Set<String> WRITES = names(TextObject.POSITION);
+
+    public Set<String> getReadProperties() {
+        return READS;
+    }
+
+    public Set<String> getWrittenProperties() {
+        return WRITES;
+    }
 }
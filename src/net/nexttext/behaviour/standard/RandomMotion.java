@@ -19,17 +19,26 @@
 
 package net.nexttext.behaviour.standard;
 
+import java.util.Set;
+
 import processing.core.PVector;
+import net.nexttext.PropertyKey;
 import net.nexttext.TextObject;
 import net.nexttext.property.NumberProperty;
 import net.nexttext.property.PVectorProperty;
 import net.nexttext.behaviour.AbstractAction;
+import net.nexttext.behaviour.BatchAction;
+import net.nexttext.behaviour.ObjectLocalAction;
 
 /**
  * Moves a TextObject randomly.
  */
 /* $Id$ */
-public class RandomMotion extends AbstractAction {
+public class RandomMotion extends AbstractAction
+    implements BatchAction, ObjectLocalAction {
+
+    private static final PropertyKey<NumberProperty> SPEED =
+        PropertyKey.get("Speed", NumberProperty.class);
     
     /** 
      * Default constructor. Speed is 4 by default.
@@ -49,10 +58,35 @@ public class RandomMotion extends AbstractAction {
     /**
      * Moves a TextObject randomly.
      */
-    public ActionResult behave(TextObject to) {
+    public int behaveBits(TextObject to) {
     	PVectorProperty pos = getPosition(to);
-        float rate = ((NumberProperty) properties().get("Speed")).get();
-        pos.add(new PVector(rate * (float)(Math.random()-0.5), rate * (float)(Math.random()-0.5)));
-        return new ActionResult(false, false, false);
+        float rate = properties().get(SPEED).get();
+        pos.add(new PVector(rate * (random(to, 0) - 0.5f), rate * (random(to, 1) - 0.5f)));
+        return ActionResult.pack(false, false, false);
+    }
+
+    /**
+     * Moves a batch of TextObjects randomly, reading the speed once.
+     */
+    public void behaveBatch(TextObject[] objs, int n, ResultSink sink) {
+        float rate = properties().get(SPEED).get();
+        PVector step = new PVector();
+        for (int i = 0; i < n; i++) {
+            TextObject to = objs[i];
+            step.set(rate * (random(to, 0) - 0.5f),
+                     rate * (random(to, 1) - 0.5f), 0);
+            getPosition(to).add(step);
+        }
+    }
+
+    private static final Set<String> READS = names(TextObject.POSITION);
+    private static final Set<String> WRITES = names(TextObject.POSITION);
+
+    public Set<String> getReadProperties() {
+        return READS;
+    }
+
+    public Set<String> getWrittenProperties() {
+        return WRITES;
     }
 }
@@ -19,6 +19,9 @@
 
 package net.nexttext.input;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
  * An interface to external events.
  *
@@ -31,43 +34,114 @@ package net.nexttext.input;
  *
  * <p>Events are buffered internally in the InputSource, so that all Behaviours
  * will see all events.  If a Behaviour is slow in accessing events, they may
- * be flushed from the buffer, and it will miss events.  </p>
+ * be flushed from the buffer, and it will miss events.  Its iterator counts
+ * the events it missed, see {@link InputSourceIterator#getLost()}.  </p>
+ *
+ * <p>The buffer takes no locks, so the thread adding events, normally the
+ * AWT event thread, never waits for the animation thread reading them, or
+ * the reverse.  </p>
  */
 /* $Id$ */
 public abstract class InputSource {
 
-    // Events are stored internally in an array, with a pointer to the most
-    // recent event.  Events are added to the array, and then the pointer is
-    // incremented, or wrapped as appropriate.
+    /** The number of events kept, unless another is given. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // Events are stored in a ring, each numbered in the order it was added.
+    // Event number n goes in slot n & mask, so the slot holding an event is
+    // overwritten by the event capacity numbers later.  Each slot keeps the
+    // number of its event with it, so that an iterator can tell whether the
+    // slot it wants still holds its event, holds one which came later, or
+    // hasn't been written yet.
+
+    static final class Slot {
+        final long sequence;
+        final InputEvent event;
+
+        Slot(long sequence, InputEvent event) {
+            this.sequence = sequence;
+            this.event = event;
+        }
+    }
+
+    final AtomicReferenceArray<Slot> slots;
+    final int mask;
+
+    // The number of the next event to be added.
+    final AtomicLong next = new AtomicLong();
+
+    protected InputSource() {
+        this(DEFAULT_CAPACITY);
+    }
 
-	InputEvent[] events = new InputEvent[1024];
+    /**
+     * Keep at least the given number of events, rounded up to a power of
+     * two.
+     */
+    protected InputSource(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        int size = 1;
+        while (size < capacity) size <<= 1;
+        slots = new AtomicReferenceArray<Slot>(size);
+        mask = size - 1;
+    }
 
-	// The array index of the latest event generated (added) to the list.
-	// -1 for an empty list
-	int latestEventIndex = -1;
+    /**
+     * The number of events kept before the oldest is overwritten.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
 
-    /** Used in the iterator also. */
-    int incrementIndex(int oldIndex) { return (oldIndex + 1) % events.length; }
+    /**
+     * The number of events added so far.
+     */
+    public long getEventCount() {
+        return next.get();
+    }
 
-	/**
-	 * Adds an event object to the list.
-	 *
-	 * @param	event	the event object to insert
-	 */
-	protected void addEvent(InputEvent event) {
-        synchronized (events) {
-            latestEventIndex = incrementIndex(latestEventIndex);
-            events[latestEventIndex] = event;
+    /**
+     * Adds an event object to the list.
+     *
+     * <p>Events are normally added from a single thread, the AWT event
+     * thread, but this is safe to call from several.  A thread which is
+     * slow to store its event may find its slot already holds one which was
+     * added a whole capacity later.  Its event is then dropped, as if it had
+     * been overwritten, and iterators count it as lost.  </p>
+     *
+     * @param   event   the event object to insert
+     */
+    protected void addEvent(InputEvent event) {
+        long sequence = next.getAndIncrement();
+        int i = (int) sequence & mask;
+        Slot slot = new Slot(sequence, event);
+        while (true) {
+            // Never replace a later event with an earlier one, or iterators
+            // waiting for the later one would wait until it came round
+            // again.
+            Slot old = slots.get(i);
+            if (old != null && old.sequence > sequence) return;
+            if (slots.compareAndSet(i, old, slot)) return;
         }
-	}
+    }
 
-	/**
-	 * Gets an iterator over the list of events of the input source.
-	 *
-	 * @return		an iterator over the list of events
-	 */
-	public InputSourceIterator getIterator() {
-		return new InputSourceIterator(this);
-	}
+    /**
+     * Gets an iterator over the list of events of the input source.
+     *
+     * <p>It starts at the oldest event still kept.  </p>
+     *
+     * @return      an iterator over the list of events
+     */
+    public InputSourceIterator getIterator() {
+        return new InputSourceIterator(this);
+    }
 
+    /**
+     * The number of the oldest event which may still be kept.
+     */
+    long oldest() {
+        long oldest = next.get() - slots.length();
+        return oldest < 0 ? 0 : oldest;
+    }
 }
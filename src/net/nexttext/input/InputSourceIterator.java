@@ -19,59 +19,123 @@
 
 package net.nexttext.input;
 
+import java.util.Collection;
 import java.util.NoSuchElementException;
 
 /**
  * An iterator over the events of a specifed input source.
  *
- * <p>The iterator keeps the array index of the last event it fetched.  When 
+ * <p>The iterator keeps the number of the next event it will fetch.  When 
  * new events are added to the list, the iterator can fetch the new events, 
- * one by one, until the last one is reached.</p>
+ * one by one, or all at once with {@link #drainTo}, until the last one is
+ * reached.  Each iterator has its own place in the list, and reads without
+ * taking any locks, but a single iterator should only be used by one thread
+ * at a time.  </p>
+ *
+ * <p>If the iterator falls so far behind that the events it was waiting for
+ * have been overwritten, it skips to the oldest event which is left, and
+ * counts the events it missed in {@link #getLost()}.  </p>
  */
 /* $Id$ */
 public class InputSourceIterator {
 
-	// The event list of the iterator.
-	InputSource source;
-	
-	// The last index fetched by the iterator.
-	// -1 when the iterator never fetched from the list.
-	int lastFetchedEventIndex = -1;
-
-	/**
-	 * Class constructor.
-	 *
-	 * @param	source		the input source to iterator over
-	 */
-	InputSourceIterator(InputSource source) {
-		this.source = source;
-	}
-
-	/**
-	 * If there is an event waiting.
-	 *
-	 * <p>Even if it returns false, it may return true later, if a new event
-	 * has occurred.  This is different behaviour than java.util.Iterator.  <p>
-	 */
-	public boolean hasNext() {
-        synchronized (source.events) {
-            return ((source.latestEventIndex != -1) &&
-                    (lastFetchedEventIndex != source.latestEventIndex));
-        }
-	}
-	
-	/**
-	 * Returns the next object in the iteration
-	 *
+    // The event list of the iterator.
+    InputSource source;
+
+    // The number of the next event to fetch.
+    long cursor;
+
+    // The number of events which were overwritten before they were fetched.
+    long lost = 0;
+
+    /**
+     * Class constructor.
+     *
+     * @param   source      the input source to iterator over
+     */
+    InputSourceIterator(InputSource source) {
+        this.source = source;
+        this.cursor = source.oldest();
+    }
+
+    /**
+     * If there is an event waiting.
+     *
+     * <p>Even if it returns false, it may return true later, if a new event
+     * has occurred.  This is different behaviour than java.util.Iterator.  <p>
+     */
+    public boolean hasNext() {
+        return peek() != null;
+    }
+
+    /**
+     * Returns the next object in the iteration
+     *
      * @throws NoSuchElementException if there's no element available.
-	 */
-	public InputEvent next() {
-        synchronized (source.events) {
-            if (!hasNext())
-                throw new NoSuchElementException("No more elements");
-
-            lastFetchedEventIndex = source.incrementIndex(lastFetchedEventIndex);
-            return source.events[lastFetchedEventIndex];
+     */
+    public InputEvent next() {
+        InputSource.Slot slot = peek();
+        if (slot == null)
+            throw new NoSuchElementException("No more elements");
+        cursor++;
+        return slot.event;
+    }
+
+    /**
+     * Fetch all the waiting events at once.
+     *
+     * @param   events      the collection to add the events to
+     * @return              the number of events added
+     */
+    public int drainTo(Collection<? super InputEvent> events) {
+        return drainTo(events, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Fetch up to max of the waiting events at once.
+     *
+     * @param   events      the collection to add the events to
+     * @param   max         the most events to add
+     * @return              the number of events added
+     */
+    public int drainTo(Collection<? super InputEvent> events, int max) {
+        int n = 0;
+        InputSource.Slot slot;
+        while (n < max && (slot = peek()) != null) {
+            events.add(slot.event);
+            cursor++;
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * The number of events this iterator has missed, because they were
+     * overwritten before it fetched them.
+     */
+    public long getLost() {
+        return lost;
+    }
+
+    /**
+     * Get the slot holding the next event, or null if it hasn't been added
+     * yet.  If it has been overwritten, skip ahead to the oldest event left.
+     */
+    private InputSource.Slot peek() {
+        while (true) {
+            InputSource.Slot slot = source.slots.get((int) cursor & source.mask);
+            if (slot == null || slot.sequence < cursor) {
+                return null;
+            }
+            if (slot.sequence == cursor) {
+                return slot;
+            }
+            // Lapped by the events being added.  The slots after this one
+            // may be being overwritten too, so start again from the oldest
+            // which is left.
+            long oldest = Math.max(source.oldest(), cursor + 1);
+            lost += oldest - cursor;
+            cursor = oldest;
         }
-	}
+    }
 }
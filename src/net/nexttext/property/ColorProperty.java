@@ -23,12 +23,24 @@ import java.awt.Color;
 
 /**
  * A colour property of a TextObject or a Behaviour.
+ *
+ * <p>The colour is stored as a packed ARGB int, in the same format as
+ * Processing's colours and Color.getRGB().  The int accessors and the static
+ * helpers below let code which changes colours every frame, such as fades,
+ * work without creating Color objects.  The Color accessors are still
+ * available, and the Color returned by get() is only rebuilt when the value
+ * has changed.  </p>
  */
 /* $Id$ */
 public class ColorProperty extends Property {
     
-    Color value;
-    Color original;
+    int value;
+    int original;
+
+    // Color objects for value and original, built on demand.  Null when they
+    // need to be rebuilt.
+    Color valueColor;
+    Color originalColor;
     
     boolean isInherited = true;
     
@@ -36,7 +48,8 @@ public class ColorProperty extends Property {
      * Creates a new ColorProperty using java.awt.Color.black by default.
      */
     public ColorProperty() {
-        original = value = Color.black; 
+        original = value = Color.black.getRGB();
+        originalColor = valueColor = Color.black;
     }
     
     /**
@@ -45,7 +58,18 @@ public class ColorProperty extends Property {
      * <p>This color property is no longer inherited by default. </p>
      */
     public ColorProperty( Color color ) {
-        original = value = color;
+        original = value = color.getRGB();
+        originalColor = valueColor = color;
+        setInherited( false );
+    }
+
+    /**
+     * Creates a new ColorProperty from a packed ARGB colour.
+     * 
+     * <p>This color property is not inherited by default. </p>
+     */
+    public ColorProperty( int argb ) {
+        original = value = argb;
         setInherited( false );
     }
     
@@ -53,6 +77,16 @@ public class ColorProperty extends Property {
      * Do not modify the returned value, use set() to make changes instead.
      */
     public Color get() {         
+        if (valueColor == null) {
+            valueColor = new Color(value, true);
+        }
+        return valueColor;
+    }
+
+    /**
+     * The colour as a packed ARGB int.
+     */
+    public int getARGB() {
         return value;
     }
     
@@ -61,17 +95,47 @@ public class ColorProperty extends Property {
      * property to false. 
      */
     public void set( Color newColor ) {       
-        value = newColor;
+        value = newColor.getRGB();
+        valueColor = newColor;
+        // property change event fired in setInherited
+        setInherited( false );
+    }
+
+    /**
+     * Sets the colour from a packed ARGB int.  Also sets the Inherited
+     * property to false. 
+     */
+    public void setARGB( int argb ) {
+        if (value != argb) {
+            value = argb;
+            valueColor = null;
+        }
         // property change event fired in setInherited
         setInherited( false );
     }
     
     public Color getOriginal() {         
+        if (originalColor == null) {
+            originalColor = new Color(original, true);
+        }
+        return originalColor;
+    }
+
+    public int getOriginalARGB() {
         return original;
     }
     
     public void setOriginal( Color newColor ) {       
-        original = newColor;
+        original = newColor.getRGB();
+        originalColor = newColor;
+        firePropertyChangeEvent();
+    }
+
+    public void setOriginalARGB( int argb ) {
+        if (original != argb) {
+            original = argb;
+            originalColor = null;
+        }
         firePropertyChangeEvent();
     }
     
@@ -95,21 +159,66 @@ public class ColorProperty extends Property {
      */
     public void reset() {
         value = original;
+        valueColor = originalColor;
         firePropertyChangeEvent();
     }
 
-    // New Color objects are created in case someone misuses the ColorProperty
-    // by modifying the internal objects.
+    // Color objects are immutable, so they can be shared with the clone.
     public ColorProperty clone() {
-        ColorProperty that = (ColorProperty) super.clone();
-        that.value = new Color(value.getRed(),
-                               value.getGreen(),
-                               value.getBlue(),
-                               value.getAlpha());
-        that.original = new Color(original.getRed(),
-                                  original.getGreen(),
-                                  original.getBlue(),
-                                  original.getAlpha());
-        return that;
+        return (ColorProperty) super.clone();
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+    // Packed colour helpers
+
+    /** The alpha channel of a packed ARGB colour, 0 to 255. */
+    public static int alpha(int argb) {
+        return argb >>> 24;
+    }
+
+    /** A packed ARGB colour with its alpha channel replaced. */
+    public static int withAlpha(int argb, int alpha) {
+        return (argb & 0x00ffffff) | ((alpha & 0xff) << 24);
+    }
+
+    /**
+     * Interpolate each channel linearly between two packed ARGB colours.
+     *
+     * @param t 0 gives from, 1 gives to
+     */
+    public static int lerp(int from, int to, float t) {
+        int a = from >>> 24,         b = (from >> 16) & 0xff;
+        int c = (from >> 8) & 0xff,  d = from & 0xff;
+        a += Math.round(((to >>> 24) - a) * t);
+        b += Math.round((((to >> 16) & 0xff) - b) * t);
+        c += Math.round((((to >> 8) & 0xff) - c) * t);
+        d += Math.round(((to & 0xff) - d) * t);
+        return (a << 24) | (b << 16) | (c << 8) | d;
+    }
+
+    /**
+     * Move each channel of a packed ARGB colour towards the matching channel
+     * of the target, by at most step, without passing it.
+     */
+    public static int step(int from, int to, int step) {
+        return (stepChannel(from >>> 24, to >>> 24, step) << 24) |
+               (stepChannel((from >> 16) & 0xff, (to >> 16) & 0xff, step) << 16) |
+               (stepChannel((from >> 8) & 0xff, (to >> 8) & 0xff, step) << 8) |
+               stepChannel(from & 0xff, to & 0xff, step);
+    }
+
+    /**
+     * Move a single channel value towards the target, by at most step,
+     * without passing it.
+     */
+    public static int stepChannel(int from, int to, int step) {
+        if (from < to) {
+            from += step;
+            if (from > to) from = to;
+        } else if (from > to) {
+            from -= step;
+            if (from < to) from = to;
+        }
+        return from;
     }
 }
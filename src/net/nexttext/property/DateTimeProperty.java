@@ -23,51 +23,65 @@ import java.util.Date;
 
 /**
  * A datetime property of a TextObject or Behaviour.
+ *
+ * <p>The times are kept as milliseconds since the epoch, and Dates are only
+ * made when asked for.  </p>
  */
 /* $Id$ */
 public class DateTimeProperty extends Property {
 
-    Date original;
-    Date value;
+    long original;
+    long value;
   
     public DateTimeProperty() {
-        original = new Date();
-        value = new Date();
+        this(System.currentTimeMillis());
     }
 
     public DateTimeProperty(Date date) {
-        original = new Date(date.getTime());
-        value = new Date(date.getTime());
+        this(date.getTime());
     }
 
     /**
-     * Do not modify the returned value, use set() to make changes instead.
+     * @param millis the time in milliseconds since the epoch
+     */
+    public DateTimeProperty(long millis) {
+        original = millis;
+        value = millis;
+    }
+
+    /**
+     * Returns a new Date, changing it doesn't change the property.
      */
     public Date get() {
-        return new Date(value.getTime());
+        return new Date(value);
     }
 
     public Date getOriginal() {
-        return new Date(original.getTime());
+        return new Date(original);
+    }
+
+    /**
+     * The time in milliseconds since the epoch, without making a Date.
+     */
+    public long getTime() {
+        return value;
     }
 
     public void set(Date date) {         
-        value.setTime(date.getTime());
+        set(date.getTime());
+    }
+
+    public void set(long millis) {
+        value = millis;
         firePropertyChangeEvent();
     }
 
     /** Reset this property to its original value. */
     public void reset() {         
-        set(getOriginal());
-        firePropertyChangeEvent();
+        set(original);
     }
 
-    // New Date objects are created in case someone misuses the
-    // DateTimeProperty by modifying the internal objects.
     public DateTimeProperty clone() {
-        DateTimeProperty that = (DateTimeProperty) super.clone();
-        that.original = new Date(original.getTime());
-        that.value = new Date(value.getTime());
-        return that;
+        return (DateTimeProperty) super.clone();
     }
 }
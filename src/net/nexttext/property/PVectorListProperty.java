@@ -18,94 +18,338 @@ import processing.core.PVector;
  *
  * <li>Add all of the <code>Vector3</code> mathematical methods.  </li>
  * </ul>
+ *
+ * <p>The points are stored packed in float arrays, as consecutive x, y, z
+ * triplets.  The fastest way to modify many points is to read them all with
+ * {@link #getPoints(float[])}, change them, and write them back with
+ * {@link #setPoints(float[])}, which fires a single change event for the
+ * whole list.  The PVectorProperty objects returned by getProp() and
+ * iterator() are views onto the packed arrays, and fire one event per change
+ * as they always have.  </p>
+ *
+ * <p>A list can share a read-only array of points with other lists, see
+ * {@link #share(float[])}.  The shared points are copied only when the list is
+ * first written to.  Until then the list costs a single array reference.  </p>
  */
 public class PVectorListProperty extends Property implements PropertyChangeListener {
-	
-	private ArrayList<PVectorProperty> list;
-	
+
+	private static final float[] EMPTY = new float[0];
+
+	// Packed x, y, z coordinates of the points' original values.  The array
+	// may be larger than needed, and may be shared with other lists, in which
+	// case it must never be modified.
+	private float[] original = EMPTY;
+	private boolean originalShared = false;
+
+	// Packed x, y, z coordinates of the points' current values, with the same
+	// length as original.  Null as long as every point is at its original
+	// value, so that undeformed lists don't need their own copy.
+	private float[] value = null;
+
+	// The number of points in the list.
+	private int size = 0;
+
+	// PVectorProperty views of the points, created on demand by getProp().
+	private ArrayList<PVectorProperty> views = null;
+
 	/**
 	 * Default constructor.  Creates an empty PVectorListProperty.
 	 */
 	public PVectorListProperty() {
-        list = new ArrayList<PVectorProperty>();
 	}
-	
+
+	/**
+	 * Replace the content of this list with a set of shared points.
+	 *
+	 * <p>The array holds packed x, y, z triplets.  It is not copied, so neither
+	 * the caller nor anyone else may modify it after this call.  Each point is
+	 * used as both the original and current value of its entry.  </p>
+	 */
+	public void share( float[] points ) {
+		original = points;
+		originalShared = true;
+		value = null;
+		size = points.length / 3;
+		views = null;
+		firePropertyChangeEvent();
+	}
+
+	/**
+	 * Returns true if this list still uses shared points, meaning it has not
+	 * been written to since the last call to share() or reset().
+	 */
+	public boolean isShared() {
+		return originalShared && isOriginal();
+	}
+
+	/**
+	 * Returns true if the list holds its original points, meaning it has not
+	 * been written to since the last call to share() or reset().
+	 */
+	public boolean isOriginal() {
+		return value == null;
+	}
+
+	// Make sure the current values can be written to.
+	private void unshareValue() {
+		if (value == null) {
+			value = new float[original.length];
+			System.arraycopy(original, 0, value, 0, size * 3);
+		}
+	}
+
+	// Make sure both the original and current values can be written to.
+	private void unshareOriginal() {
+		unshareValue();
+		if (originalShared) {
+			float[] copy = new float[original.length];
+			System.arraycopy(original, 0, copy, 0, size * 3);
+			original = copy;
+			originalShared = false;
+		}
+	}
+
+	/**
+	 * Copy the current values of all the points into an array, as packed x, y,
+	 * z triplets.
+	 *
+	 * @param points the array to fill, if it is null or too small a new one is
+	 * allocated.
+	 * @return the filled array.
+	 */
+	public float[] getPoints( float[] points ) {
+		if (points == null || points.length < size * 3) {
+			points = new float[size * 3];
+		}
+		System.arraycopy(value == null ? original : value, 0, points, 0, size * 3);
+		return points;
+	}
+
+	/**
+	 * Copy the original values of all the points into an array, as packed x,
+	 * y, z triplets.
+	 *
+	 * @param points the array to fill, if it is null or too small a new one is
+	 * allocated.
+	 * @return the filled array.
+	 */
+	public float[] getOriginalPoints( float[] points ) {
+		if (points == null || points.length < size * 3) {
+			points = new float[size * 3];
+		}
+		System.arraycopy(original, 0, points, 0, size * 3);
+		return points;
+	}
+
+	/**
+	 * Set the current values of all the points from an array of packed x, y, z
+	 * triplets, as filled by getPoints().
+	 *
+	 * <p>A single change event is fired for the whole list.  Listeners of
+	 * individual PVectorProperties returned by getProp() are not notified.
+	 * </p>
+	 */
+	public void setPoints( float[] points ) {
+		// There's nothing to change in an empty list.
+		if (size == 0) return;
+		unshareValue();
+		System.arraycopy(points, 0, value, 0, size * 3);
+		firePropertyChangeEvent();
+	}
+
 	/**
 	 * Add a PVector object to the list.
 	 * <p>This will automatically convert the PVector to a PVectorProperty.</p>
 	 */
 	public void add( PVector v1 ) {
-		add(list.size(), new PVectorProperty(v1));
+		add(size, v1);
 	}
-	
+
 	/**
 	 * Adds a PVectorProperty object to the list.
 	 */
 	public void add( PVectorProperty v1 ) {
-        add(list.size(), v1);
+        add(size, v1);
 	}
-	
+
 	/**
 	 * Adds a PVectorProperty object at the specified position in the list.
 	 */
 	public void add( int position, PVector v1 ) {
-        add(position, new PVectorProperty(v1));
+        insert(position, v1, v1);
 	}
 
 	/**
 	 * Adds a PVectorProperty object at the specified position in the list.
+	 *
+	 * <p>Only the values of the provided property are stored, later changes to
+	 * it will not affect the list.  Use getProp() to access the stored point.
+	 * </p>
 	 */
 	public void add( int position, PVectorProperty v1 ) {
-        v1.addChangeListener(this);
-		list.add( position, v1 );
+        insert(position, v1.getOriginal(), v1.get());
+	}
+
+	private void insert( int position, PVector orig, PVector val ) {
+		if (position < 0 || position > size) {
+			throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size);
+		}
+		unshareOriginal();
+
+		if (original.length < (size + 1) * 3) {
+			int capacity = Math.max(4, size * 2) * 3;
+			float[] o = new float[capacity];
+			float[] v = new float[capacity];
+			System.arraycopy(original, 0, o, 0, size * 3);
+			System.arraycopy(value, 0, v, 0, size * 3);
+			original = o;
+			value = v;
+		}
+
+		int j = position * 3;
+		System.arraycopy(original, j, original, j + 3, (size - position) * 3);
+		System.arraycopy(value, j, value, j + 3, (size - position) * 3);
+		original[j] = orig.x; original[j+1] = orig.y; original[j+2] = orig.z;
+		value[j] = val.x; value[j+1] = val.y; value[j+2] = val.z;
+		size++;
+
+		// Existing views keep pointing at the same points.
+		if (views != null) {
+			views.add(position, new PointView(position));
+			for (int i = position + 1; i < size; i++) {
+				((PointView) views.get(i)).index = i;
+			}
+		}
 		firePropertyChangeEvent();
 	}
-	
+
 	/**
 	 * Returns the PVectorProperty object at the specified position in the list.
+	 *
+	 * <p>The returned object is a view onto the list, changing it changes the
+	 * list.  </p>
 	 */
 	public PVectorProperty getProp( int position ) {
-        return list.get(position);
+        return views().get(position);
 	}
-	
+
+	private ArrayList<PVectorProperty> views() {
+		if (views == null) {
+			views = new ArrayList<PVectorProperty>(size);
+			for (int i = 0; i < size; i++) {
+				views.add(new PointView(i));
+			}
+		}
+		return views;
+	}
+
 	/**
 	 * Returns the PVector object at the specified position in the list.
 	 */
 	public PVector get( int position ) {
-        return list.get(position).get();
+		checkIndex(position);
+		float[] v = (value == null) ? original : value;
+		int j = position * 3;
+        return new PVector(v[j], v[j+1], v[j+2]);
 	}
-	
+
 	/**
 	 * Returns the original PVector object at the specified position in the list.
 	 */
 	public PVector getOriginal( int position ) {
-        return list.get(position).getOriginal();
+		checkIndex(position);
+		int j = position * 3;
+        return new PVector(original[j], original[j+1], original[j+2]);
+	}
+
+	/**
+	 * Sets the value of the point at the specified position in the list.
+	 */
+	public void set( int position, PVector newValue ) {
+		checkIndex(position);
+		unshareValue();
+		int j = position * 3;
+		value[j] = newValue.x;
+		value[j+1] = newValue.y;
+		value[j+2] = newValue.z;
+		firePropertyChangeEvent();
+	}
+
+	/**
+	 * Sets the original value of the point at the specified position in the
+	 * list.
+	 */
+	public void setOriginal( int position, PVector newValue ) {
+		checkIndex(position);
+		unshareOriginal();
+		int j = position * 3;
+		original[j] = newValue.x;
+		original[j+1] = newValue.y;
+		original[j+2] = newValue.z;
+		firePropertyChangeEvent();
 	}
-	
+
+	/**
+	 * Returns the x coordinate of the point at the specified position,
+	 * without copying it.
+	 */
+	public float getX( int position ) {
+		checkIndex(position);
+        return (value == null) ? original[position * 3] : value[position * 3];
+	}
+
+	/**
+	 * Returns the y coordinate of the point at the specified position,
+	 * without copying it.
+	 */
+	public float getY( int position ) {
+		checkIndex(position);
+        return (value == null) ? original[position * 3 + 1] : value[position * 3 + 1];
+	}
+
+	/**
+	 * Returns the z coordinate of the point at the specified position,
+	 * without copying it.
+	 */
+	public float getZ( int position ) {
+		checkIndex(position);
+        return (value == null) ? original[position * 3 + 2] : value[position * 3 + 2];
+	}
+
+	// The arrays can be larger than the list, so indices must be checked.
+	private void checkIndex( int position ) {
+		if (position < 0 || position >= size) {
+			throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size);
+		}
+	}
+
     /**
-     * Resets each PVectorProperty in the list to its original value.
+     * Resets each point in the list to its original value.
      */
     public void reset() {
-        Iterator<PVectorProperty> i = list.iterator();
-        while (i.hasNext()) {
-            i.next().reset();
-        }
+        // Dropping the current values brings back the original ones, and
+        // lets the list go back to sharing its points.
+        value = null;
         firePropertyChangeEvent();
     }
-    
+
     /**
      * Clears out the content of the list
      */
     public void clear() {
-    	list.clear();
+    	original = EMPTY;
+    	originalShared = false;
+    	value = null;
+    	size = 0;
+    	views = null;
     	firePropertyChangeEvent();
-    } 
-   
+    }
+
     public String toString() {
         StringBuffer ret = new StringBuffer();
-        Iterator<PVectorProperty> i = list.iterator();
-        while (i.hasNext()) {
-            ret.append(i.next().toString());
+        for (int i = 0; i < size; i++) {
+            ret.append("(" + getOriginal(i).toString() +
+                       ", " + get(i).toString() + ")");
         }
         return ret.toString();
 	}
@@ -118,15 +362,15 @@ public class PVectorListProperty extends Property implements PropertyChangeListe
      * points, write a remove method for this class, and call that.  </p>
 	 */
 	public Iterator<PVectorProperty> iterator() {
-		return list.iterator();
+		return views().iterator();
 	}
-	   
+
 	/**
 	 * Returns the number of PVectorProperty objects contained in this list.
 	 */
 	public int size() {
-		return list.size();
-	}	
+		return size;
+	}
 
     /**
      * For interface PropertyChangeListener, called when one of the properties
@@ -138,11 +382,119 @@ public class PVectorListProperty extends Property implements PropertyChangeListe
 
     public PVectorListProperty clone() {
     	PVectorListProperty that = (PVectorListProperty) super.clone();
-        that.list = new ArrayList<PVectorProperty>(list.size());
-        Iterator<PVectorProperty> i = list.iterator();
-        while (i.hasNext()) {
-            that.add(i.next().clone());
-        }
+    	// Shared points stay shared in the copy.
+    	if (!originalShared) {
+    	    that.original = new float[size * 3];
+    	    System.arraycopy(original, 0, that.original, 0, size * 3);
+    	}
+    	if (value != null) {
+    	    that.value = new float[that.original.length];
+    	    System.arraycopy(value, 0, that.value, 0, size * 3);
+    	}
+    	that.views = null;
         return that;
     }
+
+    /**
+     * A PVectorProperty which reads and writes one point of the list.
+     *
+     * <p>Every change goes through the list, then notifies this property's own
+     * listeners.  </p>
+     */
+    private class PointView extends PVectorProperty {
+
+    	int index;
+
+    	PointView(int index) {
+    		super(0, 0, 0);
+    		this.index = index;
+    	}
+
+    	public PVector getOriginal() {
+    		return PVectorListProperty.this.getOriginal(index);
+    	}
+
+    	public void setOriginal( PVector newValue ) {
+    		PVectorListProperty.this.setOriginal(index, newValue);
+    		firePropertyChangeEvent();
+    	}
+
+    	public PVector get() {
+    		return PVectorListProperty.this.get(index);
+    	}
+
+    	public void set( PVector newValue ) {
+    		PVectorListProperty.this.set(index, newValue);
+    		firePropertyChangeEvent();
+    	}
+
+    	public void reset() {
+    		set(getOriginal());
+    	}
+
+    	public float getX() { return PVectorListProperty.this.getX(index); }
+    	public float getY() { return PVectorListProperty.this.getY(index); }
+    	public float getZ() { return PVectorListProperty.this.getZ(index); }
+
+    	public void add( PVector v1 ) {
+    		PVector p = get();
+    		p.add(v1);
+    		set(p);
+    	}
+
+    	public void sub( PVector v1 ) {
+    		PVector p = get();
+    		p.sub(v1);
+    		set(p);
+    	}
+
+    	public void cross( PVector v1 ) {
+    		PVector p = get();
+    		p.cross(v1);
+    		set(p);
+    	}
+
+    	public void matrix( PVector v1 ) {
+    		PVector p = get();
+    		p.x = p.x * v1.x;
+    		p.y = p.y * v1.y;
+    		p.z = p.z * v1.z;
+    		set(p);
+    	}
+
+    	public void scalar( float s ) {
+    		PVector p = get();
+    		p.mult(s);
+    		set(p);
+    	}
+
+    	public float dot( PVector v1 ) {
+    		return get().dot(v1);
+    	}
+
+    	public void normalize() {
+    		PVector p = get();
+    		p.normalize();
+    		set(p);
+    	}
+
+    	public void rotate( float angle ) {
+    		angle = -angle;
+    		PVector p = get();
+    		p.x = p.x * (float)Math.cos(angle) + p.y * (float)Math.sin(angle);
+    		p.y = - p.x * (float)Math.sin(angle) + p.y * (float)Math.cos(angle);
+    		set(p);
+    	}
+
+    	public String toString() {
+    		return "(" + getOriginal().toString() + ", " + get().toString() + ")";
+    	}
+
+    	// A clone is detached from the list.
+    	public PVectorProperty clone() {
+    		PVectorProperty that = new PVectorProperty(getOriginal(), get());
+    		that.setName(getName());
+    		return that;
+    	}
+    }
 }
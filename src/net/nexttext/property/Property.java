@@ -19,9 +19,11 @@
 
 package net.nexttext.property;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A property value of a TextObject or Behaviour.
@@ -32,11 +34,15 @@ import java.util.Vector;
  *
  * <p>Property implements Cloneable so that a TextObject's properties can be
  * copied easily.  </p>
+ *
+ * <p>Change events can be held back and delivered together with
+ * {@link #beginBatch()} and {@link #commitBatch()}.  </p>
  */
 /* $Id$ */
 public abstract class Property implements Cloneable {
     
-    private Collection<PropertyChangeListener> listeners = new Vector<PropertyChangeListener>();
+    // Created when the first listener is added, most properties never get one.
+    private Collection<PropertyChangeListener> listeners = null;
     private String name = "";
     
     public void setName(String name) {
@@ -51,15 +57,128 @@ public abstract class Property implements Cloneable {
      * Registers a new PropertyChangeListener for this property.
      */
     public void addChangeListener( PropertyChangeListener listener ) {
+        if (listeners == null) {
+            listeners = new Vector<PropertyChangeListener>(1);
+        }
         listeners.add( listener );
     }
    
     protected void firePropertyChangeEvent() {         
+        if (openBatches.get() > 0) {
+            Batch b = batch.get();
+            if (b.depth > 0) {
+                if (!pending) {
+                    pending = true;
+                    b.pending.add(this);
+                }
+                return;
+            }
+        }
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        if (listeners == null) return;
         for ( Iterator<PropertyChangeListener> i = listeners.iterator(); i.hasNext(); ) {
                 i.next().propertyChanged(this);
         }
     }
 
+    ////////////////////////////////////////////////////////////////////////
+    // Batched change events
+
+    // Batches belong to a thread.  The count of open batches across all
+    // threads lets firePropertyChangeEvent() skip the thread local lookup in
+    // the common case where there are none.
+    private static AtomicInteger openBatches = new AtomicInteger();
+    private static ThreadLocal<Batch> batch = new ThreadLocal<Batch>() {
+        protected Batch initialValue() {
+            return new Batch();
+        }
+    };
+
+    private static class Batch {
+        int depth = 0;
+        boolean delivering = false;
+        ArrayList<Property> pending = new ArrayList<Property>();
+    }
+
+    // True while this property has an event waiting in a batch, so that it is
+    // only delivered once.
+    private boolean pending = false;
+
+    /**
+     * Start holding back change events fired on the current thread.
+     *
+     * <p>Until the matching {@link #commitBatch()}, a property which changes
+     * does not notify its listeners.  Instead it is remembered, and on commit
+     * each changed property notifies its listeners once, however many times
+     * it changed.  Batches can be nested, events are delivered when the
+     * outermost one is committed.  </p>
+     *
+     * <p>Code which depends on the listeners having run, such as TextObject's
+     * cached bounding polygons, should call {@link #flushBatch()} first.  </p>
+     */
+    public static void beginBatch() {
+        Batch b = batch.get();
+        if (b.depth++ == 0) {
+            openBatches.incrementAndGet();
+        }
+    }
+
+    /**
+     * Close the batch opened by the matching {@link #beginBatch()}, and
+     * deliver the held back events if it was the outermost one.
+     */
+    public static void commitBatch() {
+        Batch b = batch.get();
+        if (b.depth == 0) {
+            throw new IllegalStateException("No property change batch to commit");
+        }
+        if (b.depth == 1) {
+            try {
+                deliver(b);
+            } finally {
+                b.depth = 0;
+                openBatches.decrementAndGet();
+            }
+        } else {
+            b.depth--;
+        }
+    }
+
+    /**
+     * Deliver the events held back so far on the current thread, and keep
+     * the batch open.  Does nothing if there is no open batch.
+     */
+    public static void flushBatch() {
+        if (openBatches.get() == 0) return;
+        Batch b = batch.get();
+        if (b.depth > 0 && !b.delivering && !b.pending.isEmpty()) {
+            deliver(b);
+        }
+    }
+
+    private static void deliver(Batch b) {
+        ArrayList<Property> pending = b.pending;
+        b.delivering = true;
+        try {
+            // Listeners may change other properties, which are added to the
+            // end of the list and delivered in turn.
+            for (int i = 0; i < pending.size(); i++) {
+                Property p = pending.get(i);
+                p.pending = false;
+                p.notifyListeners();
+            }
+        } finally {
+            for (int i = 0; i < pending.size(); i++) {
+                pending.get(i).pending = false;
+            }
+            pending.clear();
+            b.delivering = false;
+        }
+    }
+
     /**
      * Get a new property with the same values as this one.
      *
@@ -71,7 +190,8 @@ public abstract class Property implements Cloneable {
     public Property clone() {
         try {             
             Property that = (Property)super.clone();
-            that.listeners = new Vector<PropertyChangeListener>();
+            that.listeners = null;
+            that.pending = false;
             return that;
         } catch (CloneNotSupportedException cnse) {
             throw new RuntimeException(cnse);
@@ -19,6 +19,7 @@
 
 package net.nexttext.renderer;
 
+import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.GeneralPath;
 import java.util.Stack;
@@ -45,6 +46,11 @@ import net.nexttext.TextPage;
 public abstract class G2DTextPageRenderer extends TextPageRenderer {
     protected Graphics2D g2;
 
+    // The last colour handed to the Graphics2D.  Neighbouring glyphs usually
+    // share a colour, so this saves building a Color for each of them.
+    private int lastARGB = 0;
+    private Color lastColor = new Color(0, true);
+
     /**
      * Builds a G2DTextPageRenderer.
      * 
@@ -64,6 +70,17 @@ public abstract class G2DTextPageRenderer extends TextPageRenderer {
         super(p, g);    
     }
     
+    /**
+     * Get a Color for a packed ARGB colour, reusing the last one if possible.
+     */
+    protected Color toColor(int argb) {
+        if (argb != lastARGB) {
+            lastARGB = argb;
+            lastColor = new Color(argb, true);
+        }
+        return lastColor;
+    }
+
     /**
      * Traverse the TextObject tree and render all of its glyphs.
      */
@@ -163,11 +180,11 @@ public abstract class G2DTextPageRenderer extends TextPageRenderer {
      * </p>
      */
     protected void enterCoords(Stack ct, TextObject node) {
-    	PVector pos = node.getPosition().get();
+    	PVector pos = node.getDrawPosition();
         g2.translate(pos.x, pos.y);
         ct.push(pos);
 
-        float rotation = node.getRotation().get();
+        float rotation = node.getDrawRotation();
         g2.rotate(rotation);
         ct.push(new Float(rotation));
     }
@@ -205,7 +205,7 @@ public abstract class G3DTextPageRenderer extends TextPageRenderer {
         g.pushMatrix();
 
         // translation
-        PVector pos = node.getPosition().get();
+        PVector pos = node.getDrawPosition();
         
         //3D TextObject's positioning is not supported yet. 
         //if ((pos.z != 0) && (renderer_type == RendererType.THREE_D))
@@ -213,7 +213,7 @@ public abstract class G3DTextPageRenderer extends TextPageRenderer {
         //else
         	g.translate((float)pos.x, (float)pos.y);
         // rotation
-        float rotation = (float)node.getRotation().get();	//todo: rotate in 3D
+        float rotation = node.getDrawRotation();	//todo: rotate in 3D
         g.rotate(rotation);
     }
 
@@ -106,14 +106,14 @@ public class Java2DTextPageRenderer extends G2DTextPageRenderer {
 
             // draw the outline of the shape
             if (glyph.isStroked()) {
-                g2.setColor(glyph.getStrokeColorAbsolute());
+                g2.setColor(toColor(glyph.getStrokeColorAbsoluteARGB()));
                 g2.setStroke(glyph.getStrokeAbsolute());
                 g2.draw(gp);
             }
 
             // fill the shape
             if (glyph.isFilled()) {
-                g2.setColor(glyph.getColorAbsolute());
+                g2.setColor(toColor(glyph.getColorAbsoluteARGB()));
                 g2.fill(gp);
             }
         }
@@ -123,7 +123,7 @@ public class Java2DTextPageRenderer extends G2DTextPageRenderer {
         else if ((glyph.getFont().getFont() == null) ||
         		 (glyph.getSize() == glyph.getFont().getFont().getSize())) {
         	//set the color
-        	g.fill(glyph.getColorAbsolute().getRGB());
+        	g.fill(glyph.getColorAbsoluteARGB());
         	//set the font
         	g.textFont(glyph.getFont());
         	//save the PApplet text alignment
@@ -142,7 +142,7 @@ public class Java2DTextPageRenderer extends G2DTextPageRenderer {
         else {
             // /////////////////////////////////////////
             // Render glyph using Graphics.drawString()
-            g2.setColor(glyph.getColorAbsolute());
+            g2.setColor(toColor(glyph.getColorAbsoluteARGB()));
             // set the font
             g2.setFont(Book.loadFontFromPFont(glyph.getFont()));
             // draw the glyph
@@ -95,7 +95,7 @@ public class OpenGLTextPageRenderer extends G3DTextPageRenderer {
             if (glyph.isDeformed()) {
                 // fill the shape
                 g.noStroke();
-                g.fill(glyph.getColorAbsolute().getRGB());
+                g.fill(glyph.getColorAbsoluteARGB());
                 fillPath(glyph, gp);
                 
             } else {
@@ -107,14 +107,14 @@ public class OpenGLTextPageRenderer extends G3DTextPageRenderer {
                 g.textAlign(PConstants.LEFT, PConstants.BASELINE);
                 
                 // render glyph using Processing's native PFont drawing method
-                g.fill(glyph.getColorAbsolute().getRGB());
+                g.fill(glyph.getColorAbsoluteARGB());
                 g.text(glyph.getGlyph(), 0, 0);
             }
         }
 
         if (glyph.isStroked()) {
             // draw the outline of the shape
-            g.stroke(glyph.getStrokeColorAbsolute().getRGB());
+            g.stroke(glyph.getStrokeColorAbsoluteARGB());
             BasicStroke bs = glyph.getStrokeAbsolute();
             g.strokeWeight(bs.getLineWidth());
             if (g instanceof PGraphicsJava2D) {
@@ -104,14 +104,14 @@ public class P2DTextPageRenderer extends G2DTextPageRenderer {
 
             // draw the outline of the shape
             if (glyph.isStroked()) {
-                g2.setColor(glyph.getStrokeColorAbsolute());
+                g2.setColor(toColor(glyph.getStrokeColorAbsoluteARGB()));
                 g2.setStroke(glyph.getStrokeAbsolute());
                 g2.draw(gp);
             }
 
             // fill the shape
             if (glyph.isFilled()) {
-                g2.setColor(glyph.getColorAbsolute());
+                g2.setColor(toColor(glyph.getColorAbsoluteARGB()));
                 g2.fill(gp);
             }
         }
@@ -121,7 +121,7 @@ public class P2DTextPageRenderer extends G2DTextPageRenderer {
         else if ((glyph.getFont().getFont() == null) ||
         		 (glyph.getSize() == glyph.getFont().getFont().getSize())) {
         	//set the color
-        	pg.fill(glyph.getColorAbsolute().getRGB());
+        	pg.fill(glyph.getColorAbsoluteARGB());
         	//set the font
         	pg.textFont(glyph.getFont());
         	//save the PApplet text alignment
@@ -140,7 +140,7 @@ public class P2DTextPageRenderer extends G2DTextPageRenderer {
         else {
             // /////////////////////////////////////////
             // Render glyph using Graphics.drawString()
-            g2.setColor(glyph.getColorAbsolute());
+            g2.setColor(toColor(glyph.getColorAbsoluteARGB()));
             // set the font
             g2.setFont(Book.loadFontFromPFont(glyph.getFont()));
             // draw the glyph
@@ -106,11 +106,11 @@ public class P3DTextPageRenderer extends G3DTextPageRenderer {
         	if (glyph.isDeformed()) {
                 // fill the shape
                 g.noStroke();
-                g.fill(glyph.getColorAbsolute().getRGB());
+                g.fill(glyph.getColorAbsoluteARGB());
                 fillPath(glyph, gp);              
             } else {
                 // render glyph using Processing's native PFont drawing method
-                g.fill(glyph.getColorAbsolute().getRGB());
+                g.fill(glyph.getColorAbsoluteARGB());
                 g.text(glyph.getGlyph(), 0, 0);
             }
         	
@@ -118,7 +118,7 @@ public class P3DTextPageRenderer extends G3DTextPageRenderer {
 
         if (glyph.isStroked()) {
             // draw the outline of the shape
-            g.stroke(glyph.getStrokeColorAbsolute().getRGB());
+            g.stroke(glyph.getStrokeColorAbsoluteARGB());
             BasicStroke bs = glyph.getStrokeAbsolute();
             g.strokeWeight(bs.getLineWidth());
             if (g instanceof PGraphicsJava2D) {
@@ -20,6 +20,7 @@
 package net.nexttext.renderer;
 
 import net.nexttext.*;
+import net.nexttext.behaviour.physics.PhysicsAction;
 import net.nexttext.property.*;
 import processing.core.*;
 
@@ -75,8 +76,7 @@ public class VelocityRenderer extends TextPageRenderer {
         while (toi.hasNext()) {
             TextObject to = toi.next();
 
-            PVectorProperty velProp = (PVectorProperty) to
-                    .getProperty("Velocity");
+            PVectorProperty velProp = to.getProperty(PhysicsAction.VELOCITY);
 
             if (velProp != null) {
             	PVector vel = velProp.get();
@@ -0,0 +1,92 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext;
+
+import static net.nexttext.TestSupport.*;
+
+import processing.core.PVector;
+
+/**
+ * Reports how much heap each glyph takes, while its standard properties are
+ * shared defaults and after every one of them has been retrieved, which is
+ * what each glyph used to cost from the start.
+ *
+ * <p>The numbers are printed, along with what 200,000 glyphs would take, and
+ * the test fails if sharing doesn't save memory.  Measuring the heap is
+ * approximate, so they vary a little from run to run.  </p>
+ */
+/* $Id$ */
+public class GlyphMemoryTest {
+
+    static final int GLYPHS = 20000;
+
+    public static void main(String[] args) {
+        Book book = newBook();
+        TextObjectGroup group = new TextObjectGroup();
+        book.getTextRoot().attachChild(group);
+
+        // Build one glyph first, so the font's outline cache is filled
+        // before measuring.
+        group.attachChild(new TextObjectGlyph("a", font(), 24, new PVector(0, 0)));
+
+        long start = usedMemory();
+        TextObjectGlyph[] glyphs = new TextObjectGlyph[GLYPHS];
+        for (int i = 0; i < GLYPHS; i++) {
+            glyphs[i] = new TextObjectGlyph("a", font(), 24, new PVector(i, 0));
+            group.attachChild(glyphs[i]);
+        }
+        long shared = (usedMemory() - start) / GLYPHS;
+
+        for (int i = 0; i < GLYPHS; i++) {
+            TextObjectGlyph g = glyphs[i];
+            g.getProperty(TextObject.BIRTH_DATE_TIME);
+            g.getProperty(TextObject.POSITION);
+            g.getProperty(TextObject.ORIGINAL_POSITION);
+            g.getProperty(TextObject.ROTATION);
+            g.getProperty(TextObject.COLOR);
+            g.getProperty(TextObject.STROKE);
+            g.getProperty(TextObject.STROKE_COLOR);
+        }
+        long materialized = (usedMemory() - start) / GLYPHS;
+
+        System.out.println("bytes per glyph with shared defaults:  " + shared +
+                           " (" + mb(shared * 200000) + "MB for 200k glyphs)");
+        System.out.println("bytes per glyph with its own properties: " + materialized +
+                           " (" + mb(materialized * 200000) + "MB for 200k glyphs)");
+        check(shared < materialized, "shared defaults take less memory");
+
+        // Keep the glyphs alive until they have been measured.
+        check(glyphs[GLYPHS - 1].getParent() == group, "the glyphs are in the book");
+    }
+
+    private static long usedMemory() {
+        Runtime rt = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, rt.totalMemory() - rt.freeMemory());
+        }
+        return used;
+    }
+
+    private static long mb(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+}
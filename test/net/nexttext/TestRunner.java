@@ -0,0 +1,54 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Runs the tests named on the command line, by calling their main()
+ * methods, and exits with a failure if any of them throws.
+ */
+/* $Id$ */
+public class TestRunner {
+
+    public static void main(String[] args) {
+        int failed = 0;
+        for (String name : args) {
+            long start = System.currentTimeMillis();
+            try {
+                Method main = Class.forName(name).getMethod("main", String[].class);
+                main.invoke(null, (Object) new String[0]);
+                System.out.println("ok     " + name + " (" +
+                                   (System.currentTimeMillis() - start) + "ms)");
+            } catch (InvocationTargetException e) {
+                failed++;
+                System.out.println("FAILED " + name);
+                e.getCause().printStackTrace(System.out);
+            } catch (Exception e) {
+                failed++;
+                System.out.println("FAILED " + name + ": " + e);
+            }
+        }
+        System.out.println((args.length - failed) + " of " + args.length + " tests passed");
+        // Behaviours may have left thread pools running.
+        System.exit(failed == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext;
+
+import java.awt.Font;
+
+import processing.core.PFont;
+
+/**
+ * What the tests need to make Books and glyphs without an applet, and to
+ * check their results.
+ *
+ * <p>The tests are plain classes whose names end in "Test", each with a
+ * main() method which throws an exception if something is wrong.  They are
+ * run by {@link TestRunner}, through the "test" target of the build.  </p>
+ */
+/* $Id$ */
+public final class TestSupport {
+
+    private static PFont font = null;
+
+    private TestSupport() {}
+
+    /**
+     * A Book which can be stepped, but has no applet to draw to.
+     */
+    public static Book newBook() {
+        return new Book();
+    }
+
+    /**
+     * The font for test glyphs, made once since fonts are large.
+     */
+    public static synchronized PFont font() {
+        if (font == null) {
+            font = new PFont(new Font("SansSerif", Font.PLAIN, 24), true,
+                             PFont.DEFAULT_CHARSET);
+        }
+        return font;
+    }
+
+    /**
+     * Fail with the message unless the condition holds.
+     */
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * Fail unless the two values are equal.
+     */
+    public static void checkEquals(Object expected, Object actual, String message) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            throw new AssertionError(message + ": expected " + expected +
+                                     " but was " + actual);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext.behaviour;
+
+import static net.nexttext.TestSupport.*;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import processing.core.PVector;
+import net.nexttext.Book;
+import net.nexttext.TextObject;
+import net.nexttext.TextObjectGlyph;
+import net.nexttext.behaviour.control.Multiplexer;
+
+/**
+ * Checks that the scheduler stops running two behaviours at the same time
+ * once an action added to one of their trees makes them touch the same
+ * property.
+ */
+/* $Id$ */
+public class BehaviourSchedulerTest {
+
+    static final AtomicInteger running = new AtomicInteger();
+    static final AtomicInteger mostRunning = new AtomicInteger();
+
+    /**
+     * Says it writes one property, and notes how many probes are running at
+     * once while it takes a little time over each object.
+     */
+    static class Probe extends AbstractAction {
+        final Set<String> writes;
+
+        Probe(String property) {
+            writes = Collections.singleton(property);
+        }
+
+        public int behaveBits(TextObject to) {
+            int now = running.incrementAndGet();
+            int most;
+            while ((most = mostRunning.get()) < now &&
+                   !mostRunning.compareAndSet(most, now)) {}
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return ActionResult.pack(false, false, false);
+        }
+
+        public Set<String> getReadProperties() {
+            return new HashSet<String>();
+        }
+
+        public Set<String> getWrittenProperties() {
+            return writes;
+        }
+    }
+
+    public static void main(String[] args) {
+        int parallelism = Behaviour.getParallelism();
+        Behaviour.setParallelism(4);
+        try {
+            Book book = newBook();
+            Multiplexer colour = new Multiplexer();
+            colour.add(new Probe("Color"));
+            Behaviour a = new Behaviour(colour);
+            Behaviour b = new Behaviour(new Probe("Position"));
+            book.addBehaviour(a);
+            book.addBehaviour(b);
+            for (int i = 0; i < 3; i++) {
+                TextObjectGlyph g = new TextObjectGlyph("a", font(), 24, new PVector(i, 0));
+                book.getTextRoot().attachChild(g);
+                a.addObject(g);
+                b.addObject(g);
+            }
+
+            check(BehaviourScheduler.independent(a, b),
+                  "behaviours on different properties are independent");
+            book.step();
+
+            colour.add(new Probe("Position"));
+            check(!BehaviourScheduler.independent(a, b),
+                  "both behaviours now write Position");
+
+            mostRunning.set(0);
+            for (int step = 0; step < 5; step++) {
+                book.step();
+            }
+            checkEquals(Integer.valueOf(1), Integer.valueOf(mostRunning.get()),
+                        "behaviours running at once after the tree changed");
+        } finally {
+            Behaviour.setParallelism(parallelism);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext.behaviour.control;
+
+import static net.nexttext.TestSupport.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import processing.core.PVector;
+import net.nexttext.Book;
+import net.nexttext.SimulationClock;
+import net.nexttext.TextObject;
+import net.nexttext.TextObjectGlyph;
+import net.nexttext.TextObjectSet;
+import net.nexttext.behaviour.AbstractAction;
+import net.nexttext.behaviour.AbstractBehaviour;
+import net.nexttext.behaviour.Action;
+import net.nexttext.behaviour.ActionState;
+
+/**
+ * Checks that a compiled tree of control actions does exactly what the tree
+ * does.
+ *
+ * <p>Each tree is run in a Book of its own, once as it is and once compiled,
+ * over the same glyphs for the same steps.  The packed result of every call,
+ * the order in which the leaves are called and completed, and the glyphs'
+ * positions at the end must all match.  A few trees with one control action
+ * each are checked, then a few hundred random ones, which share subtrees
+ * and have objects removed part way through.  </p>
+ */
+/* $Id$ */
+public class CompiledActionTest {
+
+    static final int GLYPHS = 12;
+    static final int STEPS = 60;
+    static final int RANDOM_TREES = 300;
+
+    // What happened during a run, which must be the same for both forms.
+    static StringBuilder log;
+    static Map<TextObject, Integer> index = new IdentityHashMap<TextObject, Integer>();
+
+    public static void main(String[] args) {
+        check(CompiledAction.compile(new Leaf(0, 1, 0)) instanceof Leaf,
+              "a lone leaf is not compiled");
+
+        int seed = 0;
+        for (int kind = 1; kind <= 6; kind++) {
+            Generator g = new Generator(seed++);
+            checkEquivalent(g.make(kind, 1), "tree of kind " + kind);
+        }
+
+        int compiled = 0;
+        for (int i = 0; i < RANDOM_TREES; i++) {
+            Action tree = new Generator(seed++).tree(4);
+            if (CompiledAction.compile(tree) != tree) compiled++;
+            checkEquivalent(tree, "random tree " + i);
+        }
+        check(compiled > RANDOM_TREES / 2, "most random trees are compiled");
+    }
+
+    static void checkEquivalent(Action tree, String name) {
+        String interpreted = run(tree);
+        String compiled = run(CompiledAction.compile(tree));
+
+        if (!interpreted.equals(compiled)) {
+            String[] a = interpreted.split("\n");
+            String[] b = compiled.split("\n");
+            int line = 0;
+            while (line < a.length && line < b.length && a[line].equals(b[line])) {
+                line++;
+            }
+            throw new AssertionError(name + " differs at line " + line + ": " +
+                (line < a.length ? a[line] : "<end>") + " | " +
+                (line < b.length ? b[line] : "<end>"));
+        }
+    }
+
+    // Run the action over fresh glyphs in a fresh Book, with a fixed
+    // timestep and a clock which moves on by exactly one step each time.
+    static String run(Action action) {
+        log = new StringBuilder();
+        index.clear();
+
+        Book book = newBook();
+        final long[] now = { 0 };
+        book.getClock().setTimeSource(new SimulationClock.TimeSource() {
+            public long nanoTime() { return now[0]; }
+        });
+        book.getClock().setTimestep(0.05f);
+
+        Recorder recorder = new Recorder(action);
+        book.addBehaviour(recorder);
+        List<TextObjectGlyph> glyphs = new ArrayList<TextObjectGlyph>();
+        for (int i = 0; i < GLYPHS; i++) {
+            TextObjectGlyph g = new TextObjectGlyph("a", font(), 24, new PVector(0, 0));
+            index.put(g, i);
+            book.getTextRoot().attachChild(g);
+            recorder.addObject(g);
+            glyphs.add(g);
+        }
+
+        for (int step = 0; step < STEPS; step++) {
+            log.append("step ").append(step).append('\n');
+            if (step == STEPS / 2) {
+                for (int i = 0; i < GLYPHS; i += 4) {
+                    recorder.removeObject(glyphs.get(i));
+                }
+            }
+            book.step();
+            now[0] += 50000000L;
+        }
+
+        for (TextObjectGlyph g : glyphs) {
+            log.append(index.get(g)).append(" at ").append(g.getPosition().get()).append('\n');
+        }
+        return log.toString();
+    }
+
+    /**
+     * Applies an action like Behaviour does, but logs every packed result.
+     */
+    static class Recorder extends AbstractBehaviour {
+        final Action action;
+
+        Recorder(Action action) {
+            this.action = action;
+        }
+
+        public synchronized void behaveAll() {
+            TextObjectSet set = getObjectSet();
+            int i = 0;
+            while (i < set.size()) {
+                TextObject to = set.get(i);
+                int res = AbstractAction.behaveBits(action, to);
+                log.append(index.get(to)).append(" = ").append(res).append('\n');
+                if (Action.ActionResult.isComplete(res)) {
+                    set.remove(to);
+                    action.complete(to);
+                }
+                if (i < set.size() && set.get(i) == to) {
+                    i++;
+                }
+            }
+        }
+
+        public synchronized void removeObject(TextObject to) {
+            action.complete(to);
+            super.removeObject(to);
+        }
+    }
+
+    /**
+     * Counts its calls for each object, moves it, and returns a result
+     * which depends on the count.
+     */
+    static class Leaf extends AbstractAction {
+        final int name, period, mode;
+
+        Leaf(int name, int period, int mode) {
+            this.name = name;
+            this.period = period;
+            this.mode = mode;
+        }
+
+        public int behaveBits(TextObject to) {
+            ActionState s = state(to);
+            s.i++;
+            log.append(index.get(to)).append(" L").append(name)
+               .append(" #").append(s.i).append('\n');
+
+            PVector p = to.getPosition().get();
+            p.x += name + 1;
+            p.y += s.i;
+            to.getPosition().set(p);
+
+            boolean hit = s.i % period == 0;
+            switch (mode) {
+            case 0: return ActionResult.pack(hit, hit, hit);
+            case 1: return ActionResult.pack(false, true, hit);
+            case 2: return ActionResult.pack(false, false, hit);
+            default: return ActionResult.pack(hit, false, false);
+            }
+        }
+
+        public void complete(TextObject to) {
+            log.append(index.get(to)).append(" L").append(name).append(" done\n");
+            super.complete(to);
+        }
+    }
+
+    /**
+     * A condition which changes with the object and the step.
+     */
+    static class Toggle extends Condition {
+        final int salt;
+
+        Toggle(Action trueAction, Action falseAction, int salt) {
+            super(trueAction, falseAction);
+            this.salt = salt;
+        }
+
+        public boolean condition(TextObject to) {
+            long step = to.getBook().getClock().getSteps();
+            return (index.get(to) * 7 + salt + step) % 3 != 0;
+        }
+    }
+
+    /**
+     * Makes random trees, which sometimes use a subtree more than once.
+     */
+    static class Generator {
+        final Random random;
+        final List<Action> made = new ArrayList<Action>();
+        int names = 0;
+
+        Generator(long seed) {
+            random = new Random(seed);
+        }
+
+        Action tree(int depth) {
+            int kind = depth <= 0 ? 0 : random.nextInt(9);
+            if (kind == 8 && !made.isEmpty()) {
+                return made.get(random.nextInt(made.size()));
+            }
+            Action a = make(kind, depth);
+            made.add(a);
+            return a;
+        }
+
+        Action make(int kind, int depth) {
+            switch (kind) {
+            case 1: {
+                Chain c = new Chain();
+                int n = 1 + random.nextInt(3);
+                for (int i = 0; i < n; i++) c.add(tree(depth - 1));
+                return c;
+            }
+            case 2: {
+                Multiplexer m = new Multiplexer();
+                int n = 1 + random.nextInt(3);
+                for (int i = 0; i < n; i++) m.add(tree(depth - 1));
+                return m;
+            }
+            case 3:
+                return new Repeat(tree(depth - 1), random.nextInt(4));
+            case 4:
+                return new Toggle(tree(depth - 1), tree(depth - 1), random.nextInt(3));
+            case 5:
+                return new Timer(tree(depth - 1), 0.1f * random.nextInt(6));
+            case 6:
+                return new Delay(tree(depth - 1), 0.1f * random.nextInt(4));
+            default:
+                return new Leaf(names++, 1 + random.nextInt(4), random.nextInt(4));
+            }
+        }
+    }
+}
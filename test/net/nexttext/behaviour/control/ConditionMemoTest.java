@@ -0,0 +1,101 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext.behaviour.control;
+
+import static net.nexttext.TestSupport.*;
+
+import java.awt.Rectangle;
+
+import processing.core.PVector;
+import net.nexttext.Book;
+import net.nexttext.TextObject;
+import net.nexttext.TextObjectGlyph;
+import net.nexttext.behaviour.AbstractAction;
+import net.nexttext.behaviour.Behaviour;
+import net.nexttext.behaviour.standard.DoNothing;
+
+/**
+ * Checks that conditions on the same area are tested once per object per
+ * step, in each Book they are used in.
+ */
+/* $Id$ */
+public class ConditionMemoTest {
+
+    static final int GLYPHS = 50;
+    static final int STEPS = 10;
+
+    // An area which counts how often it is tested.
+    static class CountingArea extends Rectangle {
+        int tests = 0;
+
+        CountingArea() {
+            super(-1000, -1000, 2000, 2000);
+        }
+
+        public boolean intersects(double x, double y, double w, double h) {
+            tests++;
+            return super.intersects(x, y, w, h);
+        }
+    }
+
+    // Counts the objects it is applied to.
+    static class Counter extends AbstractAction {
+        int calls = 0;
+
+        public int behaveBits(TextObject to) {
+            calls++;
+            return ActionResult.pack(false, false, false);
+        }
+    }
+
+    public static void main(String[] args) {
+        CountingArea area = new CountingArea();
+        Counter counter = new Counter();
+
+        Book[] books = { newBook(), newBook() };
+        for (Book book : books) {
+            Behaviour[] behaviours = new Behaviour[3];
+            for (int b = 0; b < behaviours.length; b++) {
+                behaviours[b] = new Behaviour(new IsInside(area, counter, new DoNothing()));
+                book.addBehaviour(behaviours[b]);
+            }
+            for (int i = 0; i < GLYPHS; i++) {
+                TextObjectGlyph g = new TextObjectGlyph("a", font(), 24, new PVector(i, 0));
+                book.getTextRoot().attachChild(g);
+                for (Behaviour b : behaviours) b.addObject(g);
+            }
+        }
+
+        for (int step = 0; step < STEPS; step++) {
+            for (Book book : books) book.step();
+        }
+
+        checkEquals(2 * GLYPHS * STEPS, area.tests, "area tests");
+        checkEquals(3 * 2 * GLYPHS * STEPS, counter.calls, "actions applied");
+
+        Object key = Condition.memoKey(IsInside.class, area);
+        checkEquals(books[0].getSharedStateId(key),
+                    books[0].getSharedStateId(Condition.memoKey(IsInside.class, area)),
+                    "equal keys share an id");
+        check(books[0].getSharedStateId(key) !=
+              books[0].getSharedStateId(Condition.memoKey(IsInside.class, new Rectangle())),
+              "keys on different areas have different ids");
+    }
+}
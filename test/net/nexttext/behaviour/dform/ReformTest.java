@@ -0,0 +1,73 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext.behaviour.dform;
+
+import static net.nexttext.TestSupport.*;
+
+import processing.core.PVector;
+import net.nexttext.Book;
+import net.nexttext.TextObject;
+import net.nexttext.TextObjectGlyph;
+import net.nexttext.behaviour.AbstractBehaviour;
+import net.nexttext.behaviour.Behaviour;
+import net.nexttext.property.PVectorListProperty;
+
+/**
+ * Checks that a glyph which Reform has put back in shape is no longer
+ * deformed, even though the control point events are held back while the
+ * behaviour runs.
+ */
+/* $Id$ */
+public class ReformTest {
+
+    public static void main(String[] args) {
+        Book book = newBook();
+        TextObjectGlyph glyph = new TextObjectGlyph("a", font(), 24, new PVector(10, 10));
+        book.getTextRoot().attachChild(glyph);
+        check(!glyph.isDeformed(), "a new glyph is not deformed");
+
+        PVectorListProperty cPs = glyph.getControlPoints();
+        check(cPs.size() > 0, "the glyph has control points");
+        for (int i = 0; i < cPs.size(); i++) {
+            PVector p = cPs.get(i);
+            p.add(new PVector(5, -3));
+            cPs.set(i, p);
+        }
+        check(glyph.isDeformed(), "moving the control points deforms the glyph");
+
+        Behaviour reform = new Behaviour(new Reform(0.5f, Reform.STYLE_LINEAR));
+        book.addBehaviour(reform);
+        reform.addObject(glyph);
+        for (int step = 0; step < 100 && isIn(glyph, reform); step++) {
+            book.step();
+        }
+
+        check(!isIn(glyph, reform), "Reform completes");
+        check(cPs.isOriginal(), "the control points are back to their originals");
+        check(!glyph.isDeformed(), "the reformed glyph is not deformed");
+    }
+
+    private static boolean isIn(TextObject to, AbstractBehaviour b) {
+        for (AbstractBehaviour ob : to.getBehaviours()) {
+            if (ob == b) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+  This file is part of the NextText project.
+  http://www.nexttext.net/
+
+  Copyright (c) 2004-08 Obx Labs / Jason Lewis
+
+  NextText is free software: you can redistribute it and/or modify it under
+  the terms of the GNU General Public License as published by the Free Software 
+  Foundation, either version 2 of the License, or (at your option) any later 
+  version.
+
+  NextText is distributed in the hope that it will be useful, but WITHOUT ANY
+  WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+  A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License along with 
+  NextText.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package net.nexttext.input;
+
+import static net.nexttext.TestSupport.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the event buffer with readers which fall behind, and with several
+ * threads adding events at once.  Every reader must see its events in
+ * order, and the events it reads plus those it lost must add up to all the
+ * events added.
+ */
+/* $Id$ */
+public class InputSourceTest {
+
+    static class Numbered extends InputEvent {
+        final int producer;
+        final long n;
+
+        Numbered(int producer, long n) {
+            this.producer = producer;
+            this.n = n;
+        }
+    }
+
+    static class Source extends InputSource {
+        Source() {
+            super(256);
+        }
+
+        void add(int producer, long n) {
+            addEvent(new Numbered(producer, n));
+        }
+    }
+
+    // Reads until every event has been added and read or lost, checking
+    // each producer's events come in order.
+    static class Reader extends Thread {
+        final Source source;
+        final InputSourceIterator events;
+        final int producers;
+        final long total;
+        final int batch;
+        long read = 0;
+        String failure = null;
+
+        Reader(Source source, int producers, long total, int batch) {
+            this.source = source;
+            this.events = source.getIterator();
+            this.producers = producers;
+            this.total = total;
+            this.batch = batch;
+        }
+
+        public void run() {
+            long[] last = new long[producers];
+            java.util.Arrays.fill(last, -1);
+            List<InputEvent> got = new ArrayList<InputEvent>();
+            while (true) {
+                got.clear();
+                if (batch == 1) {
+                    if (events.hasNext()) got.add(events.next());
+                } else {
+                    events.drainTo(got, batch);
+                }
+                for (InputEvent e : got) {
+                    Numbered ev = (Numbered) e;
+                    if (ev.n <= last[ev.producer]) {
+                        failure = "event " + ev.n + " came after " + last[ev.producer];
+                    }
+                    last[ev.producer] = ev.n;
+                    read++;
+                }
+                if (got.isEmpty() && source.getEventCount() == total && !events.hasNext()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        checkEquals(Integer.valueOf(256), Integer.valueOf(new Source().getCapacity()), "capacity");
+
+        // One producer, readers of different speeds.
+        final Source single = new Source();
+        final long total = 200000;
+        Reader[] readers = {
+            new Reader(single, 1, total, 1),
+            new Reader(single, 1, total, 64),
+            new Reader(single, 1, total, 8),
+        };
+        for (Reader r : readers) r.start();
+        for (long n = 0; n < total; n++) single.add(0, n);
+        for (Reader r : readers) {
+            r.join(60000);
+            check(!r.isAlive(), "the reader finishes");
+            check(r.failure == null, String.valueOf(r.failure));
+            checkEquals(Long.valueOf(total), Long.valueOf(r.read + r.events.getLost()),
+                        "events read and lost");
+        }
+
+        // Several producers at once; the reader must never stall on a slot
+        // which holds an earlier event than the one it wants.
+        final Source shared = new Source();
+        final int producers = 4;
+        final long each = 50000;
+        Reader reader = new Reader(shared, producers, producers * each, 16);
+        reader.start();
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread() {
+                public void run() {
+                    for (long n = 0; n < each; n++) shared.add(id, n);
+                }
+            };
+            threads[p].start();
+        }
+        for (Thread t : threads) t.join();
+        reader.join(60000);
+        check(!reader.isAlive(), "the reader finishes");
+        check(reader.failure == null, String.valueOf(reader.failure));
+        checkEquals(Long.valueOf(producers * each), Long.valueOf(reader.read + reader.events.getLost()),
+                    "events read and lost with several producers");
+
+        // A new iterator starts at the oldest event kept.
+        InputSourceIterator late = single.getIterator();
+        List<InputEvent> kept = new ArrayList<InputEvent>();
+        checkEquals(Integer.valueOf(256), Integer.valueOf(late.drainTo(kept)), "events kept");
+        checkEquals(Long.valueOf(total - 256), Long.valueOf(((Numbered) kept.get(0)).n),
+                    "oldest event kept");
+    }
+}